@@ -0,0 +1,55 @@
+package benchmark;
+
+import org.example.CompiledSpec;
+import org.example.GenerationOptions;
+import org.example.GroupFunctionBuilder;
+import org.example.SpecCompiler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generation of all endpoint blocks, with a fresh builder (and schema cache) per invocation,
+ * and the compile and emission phases on their own.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class GroupFunctionBuilderBenchmark {
+
+    private static final GenerationOptions SEQUENTIAL = GenerationOptions.builder().parallelism(1).build();
+
+    @Benchmark
+    public Map<String, StringBuilder> buildGroupedFunctions(SyntheticSpec spec) {
+        return GroupFunctionBuilder.forSpec(spec.root, GenerationOptions.defaults()).buildGroupedFunctions();
+    }
+
+    @Benchmark
+    public Map<String, StringBuilder> buildGroupedFunctionsSequential(SyntheticSpec spec) {
+        return GroupFunctionBuilder.forSpec(spec.root, SEQUENTIAL).buildGroupedFunctions();
+    }
+
+    @Benchmark
+    public CompiledSpec compile(SyntheticSpec spec) {
+        return SpecCompiler.compile(spec.root, GenerationOptions.defaults(), null);
+    }
+
+    @Benchmark
+    public Map<String, StringBuilder> emitCompiled(CompiledState state) {
+        return new GroupFunctionBuilder(state.compiled, GenerationOptions.defaults()).buildGroupedFunctions();
+    }
+
+    /** The spec compiled once per trial, to measure emission alone. */
+    @State(Scope.Benchmark)
+    public static class CompiledState {
+        CompiledSpec compiled;
+
+        @Setup(Level.Trial)
+        public void setUp(SyntheticSpec spec) {
+            compiled = SpecCompiler.compile(spec.root, GenerationOptions.defaults(), null);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.example.RequestBodyBuilder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sample bodies for every request body of the spec: {@code cold} compiles all schemas from scratch,
+ * {@code warm} reuses the memoized templates of one builder.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class RequestBodyBuilderBenchmark {
+
+    private JsonNode schemas;
+    private List<JsonNode> requestBodies;
+    private RequestBodyBuilder warmBuilder;
+
+    @Setup(Level.Trial)
+    public void setUp(SyntheticSpec spec) {
+        schemas = spec.root.path("components").path("schemas");
+        requestBodies = new ArrayList<>();
+        spec.root.path("paths").forEach(pathItem -> pathItem.forEach(operation -> {
+            JsonNode requestBody = operation.get("requestBody");
+            if (requestBody != null) requestBodies.add(requestBody);
+        }));
+        warmBuilder = new RequestBodyBuilder(schemas);
+    }
+
+    @Benchmark
+    public void cold(Blackhole blackhole) {
+        RequestBodyBuilder builder = new RequestBodyBuilder(schemas);
+        for (JsonNode requestBody : requestBodies) {
+            blackhole.consume(builder.buildBodyJson(requestBody));
+        }
+    }
+
+    @Benchmark
+    public void warm(Blackhole blackhole) {
+        for (JsonNode requestBody : requestBodies) {
+            blackhole.consume(warmBuilder.buildBodyJson(requestBody));
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package benchmark;
+
+import org.example.GenerationOptions;
+import org.example.GroupFunctionBuilder;
+import org.example.ScriptBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Assembly of the final script from endpoint blocks generated once per trial.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class ScriptBuilderBenchmark {
+
+    private final ScriptBuilder scriptBuilder = new ScriptBuilder();
+    private Map<String, StringBuilder> groupedBlocks;
+
+    @Setup(Level.Trial)
+    public void setUp(SyntheticSpec spec) {
+        groupedBlocks = GroupFunctionBuilder.forSpec(spec.root, GenerationOptions.defaults()).buildGroupedFunctions();
+    }
+
+    @Benchmark
+    public String buildFullScript() {
+        return scriptBuilder.buildFullScript(groupedBlocks, "https://api.example.com", "token", "company");
+    }
+}
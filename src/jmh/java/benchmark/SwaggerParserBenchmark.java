@@ -0,0 +1,28 @@
+package benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.example.SwaggerParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming parse of a spec already in memory, without any network or cache access.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class SwaggerParserBenchmark {
+
+    private final SwaggerParser parser = new SwaggerParser();
+
+    @Benchmark
+    public JsonNode parse(SyntheticSpec spec) throws IOException {
+        return parser.parse(new ByteArrayInputStream(spec.json));
+    }
+}
@@ -0,0 +1,36 @@
+package benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.example.SwaggerParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/**
+ * Benchmark state holding one synthetic spec, both as raw bytes and as the parsed tree.
+ */
+@State(Scope.Benchmark)
+public class SyntheticSpec {
+
+    @Param({"10", "1000", "10000", "50000"})
+    public int operations;
+
+    @Param({"3"})
+    public int schemaDepth;
+
+    @Param({"2"})
+    public int refFanOut;
+
+    @Param({"42"})
+    public long seed;
+
+    byte[] json;
+    JsonNode root;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        json = new SyntheticSpecGenerator(seed, operations, schemaDepth, refFanOut).generate();
+        root = new SwaggerParser().parse(new ByteArrayInputStream(json));
+    }
+}
@@ -0,0 +1,112 @@
+package benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Generates seeded OpenAPI 3 documents of arbitrary size for the benchmarks.
+ * The same seed and settings always produce the same bytes.
+ * Every schema nests inline objects {@code schemaDepth} levels deep and references {@code refFanOut}
+ * other schemas (cycles included), and operations carry path/query parameters, request bodies and
+ * the documentation fields a real spec has.
+ */
+public class SyntheticSpecGenerator {
+
+    private static final String[] METHODS = {"get", "post", "put", "delete", "patch"};
+    private static final String[] STATUSES = {"available", "pending", "sold"};
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final long seed;
+    private final int operations;
+    private final int schemaDepth;
+    private final int refFanOut;
+
+    public SyntheticSpecGenerator(long seed, int operations, int schemaDepth, int refFanOut) {
+        this.seed = seed;
+        this.operations = operations;
+        this.schemaDepth = schemaDepth;
+        this.refFanOut = refFanOut;
+    }
+
+    /** Number of component schemas: one per ten operations, at least one. */
+    public int schemaCount() {
+        return Math.max(1, operations / 10);
+    }
+
+    public byte[] generate() throws IOException {
+        Random random = new Random(seed);
+        ObjectNode root = mapper.createObjectNode();
+        root.put("openapi", "3.0.3");
+        root.putObject("info").put("title", "Synthetic API").put("version", "1.0.0")
+                .put("description", "Generated for benchmarks");
+
+        int tags = Math.max(1, operations / 50);
+        ObjectNode paths = root.putObject("paths");
+        for (int i = 0; i < operations; i++) {
+            String method = METHODS[i % METHODS.length];
+            String path = "/api/v1/resource" + (i / METHODS.length) + "/{id}";
+            ObjectNode pathItem = paths.has(path) ? (ObjectNode) paths.get(path) : paths.putObject(path);
+            pathItem.set(method, operation(random, i, method, "tag" + random.nextInt(tags)));
+        }
+
+        ObjectNode schemas = root.putObject("components").putObject("schemas");
+        for (int i = 0; i < schemaCount(); i++) {
+            schemas.set("Model" + i, schema(random, schemaDepth, true));
+        }
+        return mapper.writeValueAsBytes(root);
+    }
+
+    private ObjectNode operation(Random random, int index, String method, String tag) {
+        ObjectNode operation = mapper.createObjectNode();
+        operation.putArray("tags").add(tag);
+        operation.put("operationId", "operation" + index);
+        operation.put("summary", "Operation " + index);
+        operation.put("description", "Synthetic operation " + index + " of tag " + tag);
+
+        ArrayNode parameters = operation.putArray("parameters");
+        parameters.addObject().put("name", "id").put("in", "path").put("required", true).put("example", random.nextInt(10_000))
+                .putObject("schema").put("type", "integer");
+        ObjectNode limit = parameters.addObject().put("name", "limit").put("in", "query");
+        limit.putObject("schema").put("type", "integer").put("default", 10 + random.nextInt(90));
+        ObjectNode status = parameters.addObject().put("name", "status").put("in", "query");
+        ArrayNode statusEnum = status.putObject("schema").put("type", "string").putArray("enum");
+        for (String value : STATUSES) statusEnum.add(value);
+
+        if (!"get".equals(method) && !"delete".equals(method)) {
+            operation.putObject("requestBody").putObject("content").putObject("application/json")
+                    .set("schema", reference(random));
+        }
+        ObjectNode responses = operation.putObject("responses");
+        responses.putObject("200").put("description", "OK").putObject("content").putObject("application/json")
+                .set("schema", reference(random));
+        responses.putObject("404").put("description", "Not found");
+        return operation;
+    }
+
+    private ObjectNode schema(Random random, int depth, boolean withReferences) {
+        ObjectNode schema = mapper.createObjectNode().put("type", "object").put("description", "Synthetic model");
+        ObjectNode properties = schema.putObject("properties");
+        properties.putObject("id").put("type", "integer").put("format", "int64");
+        properties.putObject("name").put("type", "string").put("example", "name" + random.nextInt(1_000));
+        properties.putObject("createdAt").put("type", "string").put("format", "date-time");
+        properties.putObject("score").put("type", "number");
+        properties.putObject("labels").put("type", "array").putObject("items").put("type", "string");
+        if (depth > 0) {
+            properties.set("details", schema(random, depth - 1, false));
+        }
+        if (withReferences) {
+            for (int i = 0; i < refFanOut; i++) {
+                properties.set("related" + i, reference(random));
+            }
+        }
+        return schema;
+    }
+
+    private ObjectNode reference(Random random) {
+        return mapper.createObjectNode().put("$ref", "#/components/schemas/Model" + random.nextInt(schemaCount()));
+    }
+}
@@ -0,0 +1,41 @@
+package org.example;
+
+/**
+ * How a script generated with {@link GenerationOptions.AuthMode#SETUP} acquires its credentials.
+ * {@link SpecCompiler} picks it from the configured login operation or else the spec's
+ * {@code securitySchemes}, preferring the schemes named by the top-level {@code security} requirement.
+ * Secrets are never part of the spec; the generated script reads them from environment variables.
+ */
+public sealed interface AuthFlow {
+
+    /**
+     * OAuth2 client-credentials grant; {@code CLIENT_ID} and {@code CLIENT_SECRET} come from the environment.
+     *
+     * @param tokenUrl token endpoint, absolute or relative to the base URL
+     * @param scope    space-separated scopes requested, empty for the server's default
+     */
+    record ClientCredentials(String tokenUrl, String scope) implements AuthFlow {
+    }
+
+    /**
+     * Login operation of the spec; {@code LOGIN_BODY} in the environment replaces its sample body.
+     *
+     * @param path     request path with sample path parameters, relative to the base URL
+     * @param bodyJson sample request body, or {@code null} when it has none
+     */
+    record Login(String method, String path, String bodyJson) implements AuthFlow {
+    }
+
+    /**
+     * API key sent in a header or cookie; {@code API_KEY} in the environment overrides the generator's token.
+     *
+     * @param name header or cookie name
+     * @param in   {@code header} or {@code cookie}
+     */
+    record ApiKey(String name, String in) implements AuthFlow {
+    }
+
+    /** Bearer token given to the generator; {@code TOKEN} in the environment overrides it. It cannot be renewed. */
+    record Bearer() implements AuthFlow {
+    }
+}
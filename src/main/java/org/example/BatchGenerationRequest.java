@@ -0,0 +1,27 @@
+package org.example;
+
+import java.util.List;
+
+/**
+ * Request body of the batch generation endpoint.
+ *
+ * @param specs          specs to generate, one script per entry
+ * @param maxConcurrency upper bound of specs fetched and generated at the same time (optional)
+ * @param options        generation options applied to every spec, e.g. the load profile (optional)
+ */
+public record BatchGenerationRequest(List<SpecSource> specs, Integer maxConcurrency, GenerationOptions options) {
+
+    public GenerationOptions optionsOrDefaults() {
+        return options != null ? options : GenerationOptions.defaults();
+    }
+
+    /**
+     * One spec of a batch.
+     *
+     * @param name        name of the generated script inside the archive (optional, derived from the URL)
+     * @param swaggerUrl  URL of the Swagger (OpenAPI) definition, or its path inside {@code k6gen.specs.dir}
+     * @param bearerToken the Bearer token for authorization (optional)
+     */
+    public record SpecSource(String name, String swaggerUrl, String bearerToken) {
+    }
+}
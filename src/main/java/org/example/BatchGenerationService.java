@@ -0,0 +1,188 @@
+package org.example;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generates scripts for many specs at once and streams them back as a ZIP archive.
+ * Specs are fetched and generated concurrently on virtual threads, bounded by a semaphore.
+ * Each script is spooled to a temporary file and copied into the archive as soon as it is done,
+ * so neither the archive nor the full set of scripts is ever held in memory.
+ * Modular scripts are spooled to a temporary directory and archived under {@code <name>/}; scripts with
+ * test data are archived with their {@code <name>.data/} directory. When the archive cannot be completed,
+ * e.g. because the client disconnected, the remaining specs are abandoned and every spooled script is deleted.
+ */
+@Service
+@RequiredArgsConstructor
+public class BatchGenerationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchGenerationService.class);
+    private static final int DEFAULT_CONCURRENCY = 8;
+    private static final int MAX_CONCURRENCY = 32;
+
+    private final K6ScriptGeneratorService generatorService;
+
+    private record Result(String entryName, Path script, Exception error) {
+    }
+
+    /**
+     * Generates every spec of the request and writes one ZIP entry per spec to {@code out}.
+     * A spec that fails produces a {@code <name>.error.txt} entry instead of aborting the batch.
+     */
+    public void writeZip(BatchGenerationRequest request, GenerationOptions options, OutputStream out) throws IOException {
+        List<BatchGenerationRequest.SpecSource> specs = request.specs() == null ? List.of() : request.specs();
+        int concurrency = request.maxConcurrency() == null
+                ? DEFAULT_CONCURRENCY
+                : Math.max(1, Math.min(request.maxConcurrency(), MAX_CONCURRENCY));
+        Semaphore permits = new Semaphore(concurrency);
+        Set<String> usedNames = new HashSet<>();
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        CompletionService<Result> completion = new ExecutorCompletionService<>(executor);
+        int taken = 0;
+
+        try (executor; ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8)) {
+            for (BatchGenerationRequest.SpecSource spec : specs) {
+                String entryName = uniqueName(spec, usedNames);
+                completion.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return generate(spec, entryName, options);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+
+            try {
+                for (; taken < specs.size(); taken++) {
+                    writeEntry(zip, completion.take().get());
+                }
+                zip.finish();
+            } finally {
+                if (taken < specs.size()) {
+                    // Nobody will read the remaining scripts; stop generating them
+                    executor.shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch generation was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Batch generation failed", e.getCause());
+        } finally {
+            // Closing the executor waited for every task, so all results not taken are queued by now
+            if (taken < specs.size()) {
+                discardRemaining(completion);
+            }
+        }
+    }
+
+    /** Deletes the spooled scripts of results that were never written to the archive. */
+    private static void discardRemaining(CompletionService<Result> completion) {
+        for (Future<Result> future = completion.poll(); future != null; future = completion.poll()) {
+            if (future.state() == Future.State.SUCCESS) {
+                deleteQuietly(future.resultNow().script());
+            }
+        }
+    }
+
+    private Result generate(BatchGenerationRequest.SpecSource spec, String entryName, GenerationOptions options) {
+        Path script = null;
+        try {
+            String token = spec.bearerToken() == null ? "" : spec.bearerToken();
+            if (options.isModular() || options.getDataRows() > 0) {
+                script = Files.createTempDirectory("k6-batch-");
+                Path files = options.isModular() ? script.resolve(entryName) : script;
+                generatorService.writeK6Files(spec.swaggerUrl(), token, entryName, options,
+                        K6ScriptGeneratorService.directoryOutput(files));
+                return new Result(entryName, script, null);
+            }
+            script = Files.createTempFile("k6-batch-", ".js");
+            try (Writer writer = Files.newBufferedWriter(script)) {
+                generatorService.writeK6Script(spec.swaggerUrl(), token, options, writer);
+            }
+            return new Result(entryName, script, null);
+        } catch (Exception e) {
+            logger.error("Batch generation failed for {}: {}", spec.swaggerUrl(), e.getMessage());
+            deleteQuietly(script);
+            return new Result(entryName, null, e);
+        }
+    }
+
+    private void writeEntry(ZipOutputStream zip, Result result) throws IOException {
+        if (result.error() != null) {
+            zip.putNextEntry(new ZipEntry(result.entryName() + ".error.txt"));
+            zip.write(String.valueOf(result.error().getMessage()).getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+            return;
+        }
+        try {
+            if (Files.isDirectory(result.script())) {
+                for (Path file : listFiles(result.script())) {
+                    String relative = result.script().relativize(file).toString().replace(File.separatorChar, '/');
+                    zip.putNextEntry(new ZipEntry(relative));
+                    Files.copy(file, zip);
+                    zip.closeEntry();
+                }
+            } else {
+                zip.putNextEntry(new ZipEntry(result.entryName() + ".js"));
+                Files.copy(result.script(), zip);
+                zip.closeEntry();
+            }
+        } finally {
+            deleteQuietly(result.script());
+        }
+    }
+
+    private static List<Path> listFiles(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).sorted().toList();
+        }
+    }
+
+    private static String uniqueName(BatchGenerationRequest.SpecSource spec, Set<String> usedNames) {
+        String base = spec.name() != null && !spec.name().isBlank()
+                ? K6ScriptGeneratorService.scriptNameFor(spec.name())
+                : K6ScriptGeneratorService.scriptNameFor(spec.swaggerUrl());
+        String name = base;
+        for (int i = 2; !usedNames.add(name); i++) {
+            name = base + "_" + i;
+        }
+        return name;
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) return;
+        try {
+            if (Files.isDirectory(file)) {
+                List<Path> children;
+                try (Stream<Path> files = Files.walk(file)) {
+                    children = files.sorted(Comparator.reverseOrder()).toList();
+                }
+                for (Path child : children) Files.deleteIfExists(child);
+                return;
+            }
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete temporary script {}: {}", file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.example;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Compact, immutable model of a spec produced by {@link SpecCompiler}: operations grouped by tag,
+ * with their effective parameters, status codes, resolved sample bodies and optional test data.
+ * It holds no reference to the Jackson tree, so the parsed spec can be released before emission.
+ * Strings that repeat across operations (tags, methods, parameter names and values, status codes,
+ * shared body templates) are the same instances.
+ *
+ * @param groups        tag groups in spec order
+ * @param schemaCount   number of distinct component schemas compiled into body templates
+ * @param bodyBuildTime time spent resolving request bodies, summed over all workers
+ * @param auth          how the script acquires credentials; {@code null} unless
+ *                      {@link GenerationOptions.AuthMode#SETUP} is used
+ */
+public record CompiledSpec(List<TagGroup> groups, int schemaCount, Duration bodyBuildTime, AuthFlow auth) {
+
+    public record TagGroup(String tag, List<Operation> operations) {
+    }
+
+    /**
+     * One operation, ready to be emitted.
+     *
+     * @param name               stable request name: the operationId, or {@code METHOD_path}
+     * @param safeName           JS identifier suffix, e.g. {@code GET__pets}
+     * @param hasRequestBody     whether the operation declares a request body
+     * @param bodyJson           sample body; {@code null} without a request body or when the operation's
+     *                           code is served from the generation cache
+     * @param statusCodes        documented numeric status codes, {@code 200} when none are
+     * @param latencyThresholds  k6 threshold expressions from {@code x-latency-slo}
+     * @param fingerprint        content hash for incremental generation; {@code null} when compiled without a cache
+     * @param data               generated test data; {@code null} unless data rows are enabled and some value varies
+     */
+    public record Operation(String tag, String path, String method, String name, String safeName,
+                            PathTemplate template, List<Parameter> parameters, boolean hasRequestBody,
+                            String bodyJson, List<String> statusCodes, List<String> latencyThresholds,
+                            String fingerprint, DataSet data) {
+    }
+
+    /**
+     * Rows of test data for one operation, written to a SharedArray data file. Only values that differ
+     * between rows are columns; the others keep their static sample value.
+     *
+     * @param columns  {@code path:<name>}, {@code query:<name>} or {@code body}, in row order
+     * @param rowsJson JSON array of rows, each an array of strings: parameter values percent-encoded,
+     *                 the body serialized
+     */
+    public record DataSet(List<String> columns, String rowsJson) {
+
+        public static final String BODY = "body";
+
+        /** Index of the column holding the given value, or -1 when it is static. */
+        public int column(String key) {
+            return columns.indexOf(key);
+        }
+    }
+
+    /** Effective parameter with its sample value (not yet encoded). */
+    public record Parameter(String in, String name, String value) {
+    }
+
+    public int operationCount() {
+        int count = 0;
+        for (TagGroup group : groups) count += group.operations().size();
+        return count;
+    }
+}
@@ -0,0 +1,128 @@
+package org.example;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persistent per-operation cache used for incremental regeneration.
+ * Maps an operation fingerprint (see {@link OperationFingerprinter}) to the JS block generated for it.
+ * Entries are only valid for the generator version and generation options they were produced with; a cache
+ * written by another version or with different options is discarded on load. Only entries used by the latest run are saved,
+ * so removed operations drop out of the cache automatically.
+ */
+public class GenerationCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerationCache.class);
+    /**
+     * Version of the emitted endpoint code. Bump it in every change to what {@link GroupFunctionBuilder} writes
+     * for an operation (request lines, checks, logging, tags, data rows, escaping), so that caches written by an
+     * older generator are discarded instead of splicing in stale blocks.
+     */
+    private static final int FORMAT_VERSION = 2;
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Path file;
+    private final String optionsFingerprint;
+    private final Map<String, String> previous;
+    private final Map<String, String> current = new ConcurrentHashMap<>();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    private GenerationCache(Path file, String optionsFingerprint, Map<String, String> previous) {
+        this.file = file;
+        this.optionsFingerprint = optionsFingerprint;
+        this.previous = previous;
+    }
+
+    /**
+     * Loads the cache stored at {@code file}; a missing, unreadable or incompatible file yields an empty cache.
+     */
+    public static GenerationCache load(Path file, GenerationOptions options) {
+        String optionsFingerprint = options.toString();
+        Map<String, String> entries = new HashMap<>();
+        if (Files.isRegularFile(file)) {
+            try {
+                JsonNode root = objectMapper.readTree(file.toFile());
+                if (root.path("version").asInt() == FORMAT_VERSION
+                        && optionsFingerprint.equals(root.path("options").asText())) {
+                    root.path("entries").fields().forEachRemaining(e -> entries.put(e.getKey(), e.getValue().asText()));
+                } else {
+                    logger.info("Generation cache {} was written by another generator version or with different options; "
+                            + "regenerating everything", file);
+                }
+            } catch (IOException e) {
+                logger.warn("Ignoring unreadable generation cache {}: {}", file, e.getMessage());
+            }
+        }
+        return new GenerationCache(file, optionsFingerprint, entries);
+    }
+
+    /**
+     * Returns the cached block for the fingerprint, or {@code null} if the operation has to be regenerated.
+     */
+    public String lookup(String fingerprint) {
+        String block = current.get(fingerprint);
+        if (block == null) {
+            block = previous.get(fingerprint);
+            if (block != null) current.put(fingerprint, block);
+        }
+        if (block != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return block;
+    }
+
+    /** Whether a block is available for the fingerprint, without counting a hit or miss. */
+    public boolean contains(String fingerprint) {
+        return current.containsKey(fingerprint) || previous.containsKey(fingerprint);
+    }
+
+    public void store(String fingerprint, String block) {
+        current.put(fingerprint, block);
+    }
+
+    /**
+     * Writes the entries used by this run, replacing the previous cache file atomically.
+     */
+    public void save() throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp);
+             JsonGenerator json = objectMapper.getFactory().createGenerator(writer)) {
+            json.writeStartObject();
+            json.writeNumberField("version", FORMAT_VERSION);
+            json.writeStringField("options", optionsFingerprint);
+            json.writeObjectFieldStart("entries");
+            for (Map.Entry<String, String> entry : current.entrySet()) {
+                json.writeStringField(entry.getKey(), entry.getValue());
+            }
+            json.writeEndObject();
+            json.writeEndObject();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.info("Generation cache saved to {} ({} hits, {} regenerated)", file, hits.get(), misses.get());
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,112 @@
+package org.example;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One asynchronous script generation run of {@link GenerationJobService}.
+ * Identical submissions made while the job is active join it, so one job may answer several requests.
+ */
+public final class GenerationJob {
+
+    public enum State {
+        /** Waiting for a free generation slot. */
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED
+    }
+
+    /**
+     * Point-in-time view of a job, as returned by the job endpoints.
+     *
+     * @param requests number of submissions answered by this job
+     * @param script   path of the generated script once the job succeeded
+     * @param error    failure message once the job failed
+     */
+    public record Status(String id, String scriptName, State state, int requests, Instant submittedAt,
+                         Instant startedAt, Instant finishedAt, String script, String error) {
+
+        public boolean finished() {
+            return state == State.SUCCEEDED || state == State.FAILED;
+        }
+    }
+
+    private final String id;
+    private final String scriptName;
+    private final Instant submittedAt = Instant.now();
+    private final AtomicInteger requests = new AtomicInteger(1);
+    private final CompletableFuture<Void> started = new CompletableFuture<>();
+    private final CompletableFuture<Path> result = new CompletableFuture<>();
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+
+    GenerationJob(String id, String scriptName) {
+        this.id = id;
+        this.scriptName = scriptName;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /** Completes when generation starts, after the job waited for a free slot. */
+    public CompletableFuture<Void> started() {
+        return started.copy();
+    }
+
+    /** Completes with the path of the generated script, or exceptionally with the generation failure. */
+    public CompletableFuture<Path> result() {
+        return result.copy();
+    }
+
+    public Status status() {
+        if (result.isDone()) {
+            boolean failed = result.isCompletedExceptionally();
+            return new Status(id, scriptName, failed ? State.FAILED : State.SUCCEEDED, requests.get(), submittedAt,
+                    startedAt, finishedAt, failed ? null : result.resultNow().toString(),
+                    failed ? String.valueOf(result.exceptionNow().getMessage()) : null);
+        }
+        return new Status(id, scriptName, startedAt != null ? State.RUNNING : State.QUEUED, requests.get(),
+                submittedAt, startedAt, null, null, null);
+    }
+
+    Instant finishedAt() {
+        return finishedAt;
+    }
+
+    void join() {
+        requests.incrementAndGet();
+    }
+
+    /** Waits until the job has finished, successfully or not. */
+    void awaitFinished() throws InterruptedException {
+        try {
+            result.get();
+        } catch (ExecutionException e) {
+            // Only the end of the job matters
+        }
+    }
+
+    /** Records the end of generation; the result follows with {@link #succeed} or {@link #fail}. */
+    void markFinished() {
+        finishedAt = Instant.now();
+    }
+
+    void start() {
+        startedAt = Instant.now();
+        started.complete(null);
+    }
+
+    void succeed(Path script) {
+        result.complete(script);
+    }
+
+    void fail(Throwable error) {
+        started.complete(null);
+        result.completeExceptionally(error);
+    }
+}
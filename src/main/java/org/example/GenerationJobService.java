@@ -0,0 +1,161 @@
+package org.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs script generation as asynchronous jobs on virtual threads.
+ * <ul>
+ *   <li>At most {@code maxConcurrency} jobs generate at the same time; the others wait in the queue.</li>
+ *   <li>At most {@code maxActive} jobs may be queued or running. Further submissions are rejected with a
+ *       {@link RejectedExecutionException} until jobs finish, so callers back off instead of piling up work.</li>
+ *   <li>Jobs writing the same script name run one after the other, since they write the same files. A submission
+ *       for the same spec, token, script name and generated code (see {@link GenerationOptions#toString()}) as the
+ *       last active job of that name joins it instead of generating again.</li>
+ *   <li>Finished jobs are kept for {@code retention}, and only the {@code maxRetained} most recent ones.</li>
+ * </ul>
+ */
+@Service
+public class GenerationJobService implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerationJobService.class);
+
+    private final K6ScriptGeneratorService generatorService;
+    private final int maxActive;
+    private final int maxRetained;
+    private final Duration retention;
+    private final Semaphore permits;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("k6gen-job-", 0).factory());
+
+    // All guarded by this
+    private final Map<String, GenerationJob> jobs = new HashMap<>();
+    private final Map<String, ActiveJob> lastByScript = new HashMap<>();
+    private final Deque<GenerationJob> finished = new ArrayDeque<>();
+    private int active;
+
+    private record JobKey(String swaggerUrl, String bearerToken, String scriptName, String options) {
+    }
+
+    private record ActiveJob(JobKey key, GenerationJob job) {
+    }
+
+    @Autowired
+    public GenerationJobService(K6ScriptGeneratorService generatorService,
+                                @Value("${k6gen.jobs.max-concurrency:4}") int maxConcurrency,
+                                @Value("${k6gen.jobs.max-active:64}") int maxActive,
+                                @Value("${k6gen.jobs.max-retained:256}") int maxRetained,
+                                @Value("${k6gen.jobs.retention:PT1H}") Duration retention) {
+        this.generatorService = generatorService;
+        this.permits = new Semaphore(Math.max(1, maxConcurrency));
+        this.maxActive = Math.max(1, maxActive);
+        this.maxRetained = Math.max(0, maxRetained);
+        this.retention = retention;
+    }
+
+    /**
+     * Starts generating {@code <scriptName>.js} once no other job writes it, or joins the last active job
+     * generating the same script.
+     *
+     * @throws RejectedExecutionException if {@code maxActive} jobs are already queued or running
+     */
+    public synchronized GenerationJob submit(String swaggerUrl, String bearerToken, String scriptName,
+                                             GenerationOptions options) {
+        JobKey key = new JobKey(swaggerUrl, bearerToken, scriptName, options.toString());
+        ActiveJob last = lastByScript.get(scriptName);
+        if (last != null && last.key().equals(key)) {
+            last.job().join();
+            return last.job();
+        }
+        if (active >= maxActive) {
+            throw new RejectedExecutionException("Too many generation jobs in progress (" + maxActive + ")");
+        }
+
+        GenerationJob job = new GenerationJob(UUID.randomUUID().toString(), scriptName);
+        GenerationJob previous = last == null ? null : last.job();
+        executor.execute(() -> run(job, key, options, previous));
+        lastByScript.put(scriptName, new ActiveJob(key, job));
+        active++;
+        jobs.put(job.getId(), job);
+        return job;
+    }
+
+    /** The job with the given id, unless it is unknown or its result was evicted. */
+    public synchronized Optional<GenerationJob> find(String id) {
+        evictExpired();
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /**
+     * Generates after {@code previous}, the job writing the same script before it, has finished. The job is
+     * bookkept as finished before its result completes, so callers waiting for it see the service's final state.
+     */
+    private void run(GenerationJob job, JobKey key, GenerationOptions options, GenerationJob previous) {
+        Path script = null;
+        Throwable error = null;
+        try {
+            if (previous != null) previous.awaitFinished();
+            permits.acquire();
+            try {
+                job.start();
+                script = generatorService.generateK6Script(key.swaggerUrl(), key.bearerToken(), key.scriptName(), options);
+            } finally {
+                permits.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = e;
+        } catch (Throwable e) {
+            logger.error("Generation job {} failed for {}: {}", job.getId(), key.swaggerUrl(), e.getMessage());
+            error = e;
+        } finally {
+            finish(job, key);
+            if (error == null) {
+                job.succeed(script);
+            } else {
+                job.fail(error);
+            }
+        }
+    }
+
+    private synchronized void finish(GenerationJob job, JobKey key) {
+        job.markFinished();
+        active--;
+        lastByScript.remove(key.scriptName(), new ActiveJob(key, job));
+        finished.addLast(job);
+        while (finished.size() > maxRetained) {
+            jobs.remove(finished.removeFirst().getId());
+        }
+        evictExpired();
+    }
+
+    private void evictExpired() {
+        Instant cutoff = Instant.now().minus(retention);
+        while (!finished.isEmpty() && finished.peekFirst().finishedAt().isBefore(cutoff)) {
+            jobs.remove(finished.removeFirst().getId());
+        }
+    }
+
+    /** Stops accepting jobs and waits for the running ones to finish. */
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
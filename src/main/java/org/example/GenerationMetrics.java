@@ -0,0 +1,97 @@
+package org.example;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+
+/**
+ * Micrometer meters for the stages of script generation, each tagged with the spec source.
+ * <ul>
+ *   <li>{@code k6gen.stage.duration} — timer per {@code stage}: fetch, parse, compile (including body),
+ *       body and generate</li>
+ *   <li>{@code k6gen.generation.duration} — timer of whole runs per {@code outcome}</li>
+ *   <li>{@code k6gen.spec.bytes} / {@code k6gen.script.bytes} — bytes fetched and written</li>
+ *   <li>{@code k6gen.operations}, {@code k6gen.tags}, {@code k6gen.schemas.resolved} — work processed</li>
+ *   <li>{@code k6gen.cache.lookups} — spec and generation cache lookups per {@code result}</li>
+ * </ul>
+ */
+public class GenerationMetrics {
+
+    private final MeterRegistry registry;
+
+    public GenerationMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /** Starts measuring one generation run. */
+    public Run start(String source) {
+        return new Run(Tags.of("source", sourceTag(source)));
+    }
+
+    /**
+     * Tag value for a spec source: the URL or path without query string, made file-system safe,
+     * so tokens passed as query parameters never end up in metrics.
+     */
+    static String sourceTag(String source) {
+        int end = source.length();
+        int query = source.indexOf('?');
+        if (query >= 0) end = query;
+        int fragment = source.indexOf('#');
+        if (fragment >= 0 && fragment < end) end = fragment;
+        return K6ScriptGeneratorService.scriptNameFor(source.substring(0, end));
+    }
+
+    /** Meters of one run; not thread-safe. */
+    public final class Run {
+        private final Tags tags;
+        private final long start = System.nanoTime();
+
+        private Run(Tags tags) {
+            this.tags = tags;
+        }
+
+        public void fetched(SwaggerParser.Fetch fetch) {
+            stage("fetch", fetch.fetchTime());
+            stage("parse", fetch.parseTime());
+            DistributionSummary.builder("k6gen.spec.bytes").baseUnit("bytes").tags(tags)
+                    .register(registry).record(fetch.bytes());
+            cacheLookups("spec", fetch.notModified() ? 1 : 0, fetch.notModified() ? 0 : 1);
+        }
+
+        public void compiled(CompiledSpec spec, Duration duration) {
+            stage("compile", duration);
+            stage("body", spec.bodyBuildTime());
+            registry.counter("k6gen.operations", tags).increment(spec.operationCount());
+            registry.counter("k6gen.tags", tags).increment(spec.groups().size());
+            registry.counter("k6gen.schemas.resolved", tags).increment(spec.schemaCount());
+        }
+
+        public void generated(Duration duration) {
+            stage("generate", duration);
+        }
+
+        public void written(long bytes) {
+            DistributionSummary.builder("k6gen.script.bytes").baseUnit("bytes").tags(tags)
+                    .register(registry).record(bytes);
+        }
+
+        public void cacheLookups(String cache, long hits, long misses) {
+            Tags cacheTags = tags.and("cache", cache);
+            if (hits > 0) registry.counter("k6gen.cache.lookups", cacheTags.and("result", "hit")).increment(hits);
+            if (misses > 0) registry.counter("k6gen.cache.lookups", cacheTags.and("result", "miss")).increment(misses);
+        }
+
+        public void finish(boolean success) {
+            Timer.builder("k6gen.generation.duration").tags(tags).tag("outcome", success ? "success" : "failure")
+                    .register(registry).record(Duration.ofNanos(System.nanoTime() - start));
+        }
+
+        private void stage(String stage, Duration duration) {
+            Timer.builder("k6gen.stage.duration").tags(tags).tag("stage", stage)
+                    .register(registry).record(duration);
+        }
+    }
+}
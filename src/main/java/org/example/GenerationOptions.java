@@ -0,0 +1,227 @@
+package org.example;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.jackson.Jacksonized;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tuning knobs for script generation.
+ * Use {@link #defaults()} for the standard sequential-or-parallel behaviour,
+ * or {@link #builder()} to override individual settings.
+ * {@link #toString()} lists only the settings that change the generated code; it keys the
+ * incremental generation cache, so purely operational settings are excluded from it.
+ */
+@Getter
+@Builder(toBuilder = true)
+@Jacksonized
+@ToString
+public class GenerationOptions {
+
+    /**
+     * Worker threads used to generate endpoint blocks; 1 forces sequential generation. Read through
+     * {@link #getParallelism()}, which keeps it between 1 and the number of available processors.
+     */
+    @ToString.Exclude
+    @Builder.Default
+    private final int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /** Specs with fewer operations than this are always generated sequentially. */
+    @ToString.Exclude
+    @Builder.Default
+    private final int parallelThreshold = 200;
+
+    /** Maximum number of operations handed to one worker task; read as at least 1. */
+    @ToString.Exclude
+    @Builder.Default
+    private final int chunkSize = 64;
+
+    /** Reuse unchanged endpoint blocks from the on-disk cache next to the output directory. */
+    @ToString.Exclude
+    @Builder.Default
+    private final boolean incremental = false;
+
+    /** Which requests of a tag group are sent together with {@code http.batch()}. */
+    @Builder.Default
+    private final BatchMode batchMode = BatchMode.OFF;
+
+    /** Maximum number of requests per {@code http.batch()} call. */
+    @Builder.Default
+    private final int batchSize = 10;
+
+    /** Seconds slept after each request (or batch); 0 removes the {@code sleep()} call. */
+    @Builder.Default
+    private final double thinkTimeSeconds = 1;
+
+    /**
+     * Load profile used for every tag group's scenario; {@code null} keeps the single-VU smoke test
+     * ({@code vus: 1, duration: '3s'}).
+     */
+    @Builder.Default
+    private final LoadProfile loadProfile = null;
+
+    /**
+     * Per-tag overrides of {@link #loadProfile}, keyed by Swagger tag. Without {@link #loadProfile}, tags
+     * missing here run the single-VU smoke test as their scenario.
+     */
+    @ToString.Exclude
+    @Builder.Default
+    private final Map<String, LoadProfile> tagProfiles = Map.of();
+
+    /**
+     * p95 latency target in milliseconds applied to all requests as a threshold; {@code null} for none.
+     * Operations with an {@code x-latency-slo} extension get their own threshold.
+     */
+    @Builder.Default
+    private final Integer defaultLatencySloMs = null;
+
+    /**
+     * Emits per-operation {@code Trend}/{@code Rate} metrics, static check names and a {@code name} tag
+     * on every request, keeping metric cardinality independent of URLs and status codes.
+     */
+    @Builder.Default
+    private final boolean instrumented = false;
+
+    /** What each request writes to the k6 console. */
+    @Builder.Default
+    private final LogMode logMode = LogMode.ALL;
+
+    /** With {@link LogMode#SAMPLED}, one request in this many is logged. */
+    @Builder.Default
+    private final int logSampleRate = 100;
+
+    /**
+     * Moves URLs, serialized bodies, status lists and request params into init-context constants and
+     * routes checks and logging through shared helpers, so each request is two short lines and an
+     * iteration allocates almost nothing.
+     */
+    @Builder.Default
+    private final boolean hoisted = false;
+
+    /**
+     * Writes a directory of ES modules instead of one script: a shared {@code lib.js}, one module per tag
+     * group and entry scripts that import only the groups they run (see {@link ScriptBuilder#writeModules}).
+     */
+    @Builder.Default
+    private final boolean modular = false;
+
+    /**
+     * Rows of test data generated per operation from {@code enum}/{@code examples} values and type-aware
+     * random values. Varying path and query parameters and request bodies are then read from data files
+     * through k6 {@code SharedArray}s; 0 keeps a single static value inline.
+     */
+    @Builder.Default
+    private final int dataRows = 0;
+
+    /** Seed of the generated test data; the same spec, seed and row count always give the same files. */
+    @Builder.Default
+    private final long dataSeed = 1;
+
+    /** How a request picks its row of test data. */
+    @Builder.Default
+    private final DataSelection dataSelection = DataSelection.ITERATION;
+
+    /** How requests authenticate. */
+    @Builder.Default
+    private final AuthMode authMode = AuthMode.STATIC;
+
+    /**
+     * With {@link AuthMode#SETUP}, the operationId of the spec's login operation, which then replaces the
+     * spec's security schemes as the source of tokens; {@code null} for none.
+     */
+    @Builder.Default
+    private final String loginOperation = null;
+
+    /**
+     * Makes {@code handleSummary} also write a JSON summary ({@code SUMMARY_JSON}, {@code summary.json} by default)
+     * with each operation's request count, p50/p95/p99/max latency and error rate, keyed by the {@code name} tag
+     * every request then carries. It has the shape of {@link RunReport}, so it can serve as a baseline.
+     */
+    @Builder.Default
+    private final boolean summaryJson = false;
+
+    /** Requests eligible for {@code http.batch()}. Generated requests never depend on each other's responses. */
+    public enum BatchMode {
+        /** Every request is sent on its own. */
+        OFF,
+        /** GET requests are batched. */
+        GET_ONLY,
+        /** Requests of every method are batched. */
+        ALL;
+
+        public boolean includes(String method) {
+            return this == ALL || (this == GET_ONLY && "get".equalsIgnoreCase(method));
+        }
+    }
+
+    /** Per-request console logging. */
+    public enum LogMode {
+        /** Every response is logged. */
+        ALL,
+        /** Only responses with an undocumented status code are logged, as warnings. */
+        ERRORS,
+        /** A random sample of one response in {@code logSampleRate} is logged. */
+        SAMPLED,
+        /** Nothing is logged. */
+        OFF
+    }
+
+    /** Row of test data used by a request. */
+    public enum DataSelection {
+        /**
+         * Every iteration of the scenario takes the next row, across all its VUs
+         * ({@code exec.scenario.iterationInTest}). Each tag group runs in its own scenario, so an operation's rows
+         * advance once per iteration of its group.
+         */
+        ITERATION,
+        /** Every VU keeps one row for all its iterations. */
+        VU
+    }
+
+    /** Source of the credentials sent with every request. */
+    public enum AuthMode {
+        /** The bearer token given to the generator is written into the script. */
+        STATIC,
+        /**
+         * {@code setup()} acquires a token once (see {@link AuthFlow}) and hands it to the VUs, which only
+         * acquire a new one when it expires or a request gets {@code 401}.
+         */
+        SETUP
+    }
+
+    public static GenerationOptions defaults() {
+        return builder().build();
+    }
+
+    /** Options may come straight from a request body, so out-of-range values are clamped where they are read. */
+    public int getParallelism() {
+        return Math.max(1, Math.min(parallelism, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public int getChunkSize() {
+        return Math.max(1, chunkSize);
+    }
+
+    /**
+     * Load profile of the given tag group: its own, else {@link #loadProfile}, else the single-VU
+     * {@link LoadProfile#smokeTest()} so that every group still runs; {@code null} when scenarios are not generated.
+     */
+    public LoadProfile profileFor(String tag) {
+        if (!usesScenarios()) return null;
+        LoadProfile profile = tagProfiles.getOrDefault(tag, loadProfile);
+        return profile != null ? profile : LoadProfile.smokeTest();
+    }
+
+    /** Scenarios are generated as soon as any load profile is configured. */
+    public boolean usesScenarios() {
+        return loadProfile != null || !tagProfiles.isEmpty();
+    }
+
+    @ToString.Include(name = "tagProfiles")
+    private Map<String, LoadProfile> sortedTagProfiles() {
+        return new TreeMap<>(tagProfiles);
+    }
+}
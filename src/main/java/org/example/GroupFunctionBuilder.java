@@ -2,168 +2,716 @@ package org.example;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 /**
- * Builds grouped test functions for each Swagger tag from path definitions,
- * including status check, timing, body validation, logging response status per request,
- * and safe handling of nulls in Swagger parameter definitions.
- * Supports static/example/default/enum values for query and path parameters.
- * Now: Only the received response status line is shown in the K6 console.
- * Also logs every request result as [STATUS] in the K6 output.
+ * Builds one k6 test function per Swagger tag from a {@link CompiledSpec}: a request per operation with
+ * parameter values taken from examples, defaults and enums (or rows of generated test data), a status
+ * check and console logging as configured in {@link GenerationOptions}.
+ * Groups are collected per tag or streamed into an {@link Appendable}; large specs are generated in
+ * parallel chunks with output identical to sequential generation, and a {@link GenerationCache} limits
+ * regeneration to changed operations.
  */
 public class GroupFunctionBuilder {
 
-    private final JsonNode paths;
-    private final JsonNode components;
-    private final RequestBodyBuilder requestBodyBuilder;
+    private static final String COMPANY_VARIABLE = "company";
+
+    private final GenerationOptions options;
+    private JsonNode paths;
+    private JsonNode components;
+    private JsonNode parameterComponents;
+    private JsonNode securitySchemes;
+    private JsonNode security;
+    private GenerationCache cache;
+    private CompiledSpec spec;
 
     public GroupFunctionBuilder(JsonNode paths, JsonNode components) {
+        this(paths, components, GenerationOptions.defaults());
+    }
+
+    public GroupFunctionBuilder(JsonNode paths, JsonNode components, GenerationOptions options) {
+        this(paths, components, null, options);
+    }
+
+    public GroupFunctionBuilder(JsonNode paths, JsonNode components, JsonNode parameterComponents, GenerationOptions options) {
         this.paths = paths;
         this.components = components;
-        this.requestBodyBuilder = new RequestBodyBuilder();
+        this.parameterComponents = parameterComponents;
+        this.options = options;
+    }
+
+    /**
+     * Emits an already compiled spec. For incremental generation it must have been compiled with the
+     * same cache that is passed to {@link #useCache(GenerationCache)}.
+     */
+    public GroupFunctionBuilder(CompiledSpec spec, GenerationOptions options) {
+        this.spec = spec;
+        this.options = options;
+    }
+
+    /**
+     * Creates a builder for a parsed spec, wiring {@code components.schemas}, {@code components.parameters}
+     * and the security schemes and requirements.
+     */
+    public static GroupFunctionBuilder forSpec(JsonNode root, GenerationOptions options) {
+        JsonNode components = root.path("components");
+        GroupFunctionBuilder builder = new GroupFunctionBuilder(root.path("paths"), components.path("schemas"),
+                components.path("parameters"), options);
+        builder.securitySchemes = components.path("securitySchemes");
+        builder.security = root.path("security");
+        return builder;
+    }
+
+    /**
+     * Enables incremental generation: operations whose fingerprint is found in the cache are
+     * spliced in from it, all others are generated and stored.
+     */
+    public GroupFunctionBuilder useCache(GenerationCache cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    public GenerationOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * The compiled model every emitter works from; compiled on first use, after which this
+     * builder no longer references the Jackson tree.
+     */
+    public synchronized CompiledSpec getCompiledSpec() {
+        if (spec == null) {
+            SpecCompiler compiler = new SpecCompiler(paths, components, parameterComponents, options, cache);
+            if (securitySchemes != null) compiler.useSecurity(securitySchemes, security);
+            spec = compiler.compile();
+            paths = null;
+            components = null;
+            parameterComponents = null;
+            securitySchemes = null;
+            security = null;
+        }
+        return spec;
+    }
+
+    /** Total time spent building request bodies, summed over all workers. */
+    public Duration getBodyBuildTime() {
+        return getCompiledSpec().bodyBuildTime();
+    }
+
+    /** Number of distinct schemas compiled into body templates. */
+    public int compiledSchemaCount() {
+        return getCompiledSpec().schemaCount();
     }
 
-    private static class EndpointMethod {
-        String path;
-        String method;
-        JsonNode details;
+    /**
+     * Operation as seen by the script header: its group, the stable request name used for
+     * {@code name} tags and thresholds, the suffix of its JS variables (e.g. {@code GET__pets}) and its
+     * latency thresholds from {@code x-latency-slo}.
+     */
+    public record OperationSummary(String tag, String name, String method, String path, String variable,
+                                   List<String> latencyThresholds) {
+    }
 
-        EndpointMethod(String path, String method, JsonNode details) {
-            this.path = path;
-            this.method = method;
-            this.details = details;
+    /**
+     * Lists the operations of every tag group in generation order, without generating any code.
+     * Used to emit init-context declarations (options, scenarios, thresholds) before the groups.
+     */
+    public Map<String, List<OperationSummary>> describeGroups() {
+        Map<String, List<OperationSummary>> summaries = new LinkedHashMap<>();
+        for (CompiledSpec.TagGroup group : getCompiledSpec().groups()) {
+            List<OperationSummary> operations = new ArrayList<>();
+            for (CompiledSpec.Operation op : group.operations()) {
+                operations.add(new OperationSummary(group.tag(), op.name(), op.method().toUpperCase(), op.path(),
+                        op.safeName(), op.latencyThresholds()));
+            }
+            summaries.put(group.tag(), operations);
         }
+        return summaries;
+    }
+
+    /**
+     * Opens and closes the code surrounding one tag group when streaming with
+     * {@link #writeGroupedFunctions(Appendable, GroupFrame)}.
+     */
+    public interface GroupFrame {
+        void open(Appendable out, String tag) throws IOException;
+
+        void close(Appendable out, String tag) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface ChunkConsumer {
+        void accept(String tag, CharSequence chunk, boolean firstInGroup, boolean lastInGroup) throws IOException;
+    }
+
+    /** One emitted block: a single request, or several independent requests sent with {@code http.batch()}. */
+    private record Unit(List<CompiledSpec.Operation> endpoints, boolean batched) {
+    }
+
+    private record Chunk(String tag, List<Unit> units, boolean firstInGroup, boolean lastInGroup) {
+    }
+
+    /** Everything needed to emit the request and checks of one endpoint. */
+    private record EndpointCode(String safeName, String name, String method, String url, String bodyBlock, boolean sendsBody,
+                                String jsStatusArr, String urlForMsg) {
     }
 
     public Map<String, StringBuilder> buildGroupedFunctions() {
-        Map<String, List<EndpointMethod>> grouped = new LinkedHashMap<>();
-
-        // Group endpoints by tag
-        paths.fields().forEachRemaining(entry -> {
-            String path = entry.getKey();
-            JsonNode methods = entry.getValue();
-            methods.fields().forEachRemaining(methodEntry -> {
-                String method = methodEntry.getKey();
-                JsonNode details = methodEntry.getValue();
-                String tag = "general";
-                JsonNode tags = details.get("tags");
-                if (tags != null && tags.isArray() && tags.size() > 0) {
-                    tag = tags.get(0).asText();
-                }
-                grouped.computeIfAbsent(tag, k -> new ArrayList<>())
-                        .add(new EndpointMethod(path, method, details));
-            });
+        Map<String, StringBuilder> output = new LinkedHashMap<>();
+        try {
+            generate(planUnits(getCompiledSpec()), (tag, chunk, first, last) ->
+                    output.computeIfAbsent(tag, k -> new StringBuilder()).append(chunk));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output;
+    }
+
+    /**
+     * Streams every tag group to {@code out} in spec order, wrapping each group with {@code frame}.
+     * Sequential generation holds a single endpoint block in memory at a time; parallel generation
+     * holds at most a small window of chunks.
+     */
+    public void writeGroupedFunctions(Appendable out, GroupFrame frame) throws IOException {
+        generate(planUnits(getCompiledSpec()), (tag, chunk, first, last) -> {
+            if (first) frame.open(out, tag);
+            out.append(chunk);
+            if (last) frame.close(out, tag);
         });
+    }
 
-        Map<String, StringBuilder> output = new LinkedHashMap<>();
+    /** Streams a single tag group to {@code out}, wrapped with {@code frame}; used for per-tag modules. */
+    public void writeGroupFunction(Appendable out, String tag, GroupFrame frame) throws IOException {
+        Map<String, List<Unit>> units = planUnits(getCompiledSpec());
+        units.keySet().retainAll(Set.of(tag));
+        generate(units, (t, chunk, first, last) -> {
+            if (first) frame.open(out, t);
+            out.append(chunk);
+            if (last) frame.close(out, t);
+        });
+    }
+
+    /**
+     * Splits each group into emission units. Without batching every endpoint is its own unit;
+     * with batching, batchable endpoints are collected into {@code http.batch()} units of up to
+     * {@code batchSize} requests, placed where their first request appeared.
+     */
+    private Map<String, List<Unit>> planUnits(CompiledSpec spec) {
+        Map<String, List<Unit>> planned = new LinkedHashMap<>();
+        int batchSize = Math.max(1, options.getBatchSize());
+        for (CompiledSpec.TagGroup group : spec.groups()) {
+            List<Unit> units = new ArrayList<>();
+            Unit openBatch = null;
+            for (CompiledSpec.Operation ep : group.operations()) {
+                if (!options.getBatchMode().includes(ep.method())) {
+                    units.add(new Unit(List.of(ep), false));
+                    continue;
+                }
+                if (openBatch == null || openBatch.endpoints().size() == batchSize) {
+                    openBatch = new Unit(new ArrayList<>(), true);
+                    units.add(openBatch);
+                }
+                openBatch.endpoints().add(ep);
+            }
+            planned.put(group.tag(), units);
+        }
+        return planned;
+    }
+
+    private void generate(Map<String, List<Unit>> grouped, ChunkConsumer consumer) throws IOException {
+        int operationCount = 0;
+        for (List<Unit> units : grouped.values()) {
+            for (Unit unit : units) operationCount += unit.endpoints().size();
+        }
+        if (options.getParallelism() > 1 && operationCount >= options.getParallelThreshold()) {
+            generateInParallel(grouped, consumer);
+            return;
+        }
+
+        StringBuilder block = new StringBuilder();
+        for (Map.Entry<String, List<Unit>> entry : grouped.entrySet()) {
+            List<Unit> units = entry.getValue();
+            for (int i = 0; i < units.size(); i++) {
+                block.setLength(0);
+                appendUnit(block, units.get(i));
+                consumer.accept(entry.getKey(), block, i == 0, i == units.size() - 1);
+            }
+        }
+    }
 
-        for (Map.Entry<String, List<EndpointMethod>> entry : grouped.entrySet()) {
-            String groupName = entry.getKey();
-            StringBuilder builder = new StringBuilder();
-
-            for (EndpointMethod ep : entry.getValue()) {
-                String safeName = ep.method.toUpperCase() + "_" + ep.path.replaceAll("[^a-zA-Z0-9]", "_");
-                String finalPath = ep.path.replace("{company}", "${COMPANY}");
-
-                // Parameter handling (both path and query)
-                StringBuilder queryParams = new StringBuilder();
-                JsonNode parameters = ep.details.get("parameters");
-                List<String> paramList = new ArrayList<>();
-
-                if (parameters != null && parameters.isArray()) {
-                    for (JsonNode param : parameters) {
-                        JsonNode nameNode = param.get("name");
-                        if (nameNode == null) continue;
-                        String name = nameNode.asText();
-
-                        // Find static value for parameter
-                        String value = "value";
-                        JsonNode exampleNode = param.get("example");
-                        JsonNode defaultNode = param.get("default");
-                        JsonNode enumNode = param.get("enum");
-
-                        if (exampleNode != null) {
-                            value = exampleNode.isTextual() ? exampleNode.asText() : exampleNode.toString();
-                        } else if (defaultNode != null) {
-                            value = defaultNode.isTextual() ? defaultNode.asText() : defaultNode.toString();
-                        } else if (enumNode != null && enumNode.isArray() && enumNode.size() > 0) {
-                            JsonNode first = enumNode.get(0);
-                            value = first.isTextual() ? first.asText() : first.toString();
+    /**
+     * Splits every tag into chunks of at most {@code chunkSize} units and generates them on the shared
+     * fork-join pool of the configured parallelism. Results are consumed strictly in the original tag and
+     * operation order, with no more than two chunks per worker in flight.
+     */
+    private void generateInParallel(Map<String, List<Unit>> grouped, ChunkConsumer consumer) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        for (Map.Entry<String, List<Unit>> entry : grouped.entrySet()) {
+            List<Unit> units = entry.getValue();
+            for (int from = 0; from < units.size(); from += options.getChunkSize()) {
+                int to = Math.min(from + options.getChunkSize(), units.size());
+                chunks.add(new Chunk(entry.getKey(), units.subList(from, to), from == 0, to == units.size()));
+            }
+        }
+
+        ForkJoinPool pool = WorkerPools.forParallelism(options.getParallelism());
+        Deque<Future<StringBuilder>> inFlight = new ArrayDeque<>();
+        try {
+            int window = options.getParallelism() * 2;
+            int next = 0;
+            for (Chunk chunk : chunks) {
+                while (next < chunks.size() && inFlight.size() < window) {
+                    List<Unit> units = chunks.get(next++).units();
+                    inFlight.add(pool.submit(() -> {
+                        StringBuilder builder = new StringBuilder();
+                        for (Unit unit : units) {
+                            appendUnit(builder, unit);
                         }
+                        return builder;
+                    }));
+                }
+                consumer.accept(chunk.tag(), inFlight.poll().get(), chunk.firstInGroup(), chunk.lastInGroup());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Parallel generation was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Parallel generation failed", e.getCause());
+        } finally {
+            // The pool is shared: drop the chunks nobody will consume
+            inFlight.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private void appendUnit(StringBuilder builder, Unit unit) {
+        if (cache == null) {
+            generateUnit(builder, unit);
+            return;
+        }
+        StringJoiner fingerprints = new StringJoiner(":", unit.batched() ? "batch:" : "", "");
+        for (CompiledSpec.Operation ep : unit.endpoints()) {
+            if (ep.fingerprint() == null) {
+                throw new IllegalStateException("Spec was compiled without a generation cache: " + ep.name());
+            }
+            fingerprints.add(ep.fingerprint());
+        }
+        String fingerprint = fingerprints.toString();
+        String cached = cache.lookup(fingerprint);
+        if (cached != null) {
+            builder.append(cached);
+            return;
+        }
+        int start = builder.length();
+        generateUnit(builder, unit);
+        cache.store(fingerprint, builder.substring(start));
+    }
+
+    private void generateUnit(StringBuilder builder, Unit unit) {
+        if (options.isHoisted()) {
+            generateHoistedUnit(builder, unit);
+            return;
+        }
+        if (!unit.batched()) {
+            CompiledSpec.Operation ep = unit.endpoints().get(0);
+            EndpointCode code = prepare(ep);
+            appendComment(builder, ep);
+            builder.append(code.bodyBlock())
+                    .append("   let response_").append(code.safeName()).append(" = http.")
+                    .append(code.method()).append("(`${BASE_URL}").append(code.url()).append("`, ")
+                    .append(code.sendsBody() ? "body_" + code.safeName() + ", " : "")
+                    .append(requestParams(ep, code))
+                    .append(");\n");
+            appendChecks(builder, ep, code);
+            appendThinkTime(builder);
+            return;
+        }
+
+        List<EndpointCode> codes = new ArrayList<>();
+        for (CompiledSpec.Operation ep : unit.endpoints()) {
+            EndpointCode code = prepare(ep);
+            codes.add(code);
+            appendComment(builder, ep);
+            builder.append(code.bodyBlock());
+        }
+        String batchName = "batch_" + codes.get(0).safeName();
+        builder.append("   let ").append(batchName).append(" = http.batch([\n");
+        for (int i = 0; i < codes.size(); i++) {
+            EndpointCode code = codes.get(i);
+            builder.append("      ['").append(code.method().toUpperCase()).append("', `${BASE_URL}").append(code.url()).append("`, ")
+                    .append(code.sendsBody() ? "body_" + code.safeName() : "null")
+                    .append(", ").append(requestParams(unit.endpoints().get(i), code)).append("],\n");
+        }
+        builder.append("   ]);\n");
+        for (int i = 0; i < codes.size(); i++) {
+            EndpointCode code = codes.get(i);
+            builder.append("   let response_").append(code.safeName()).append(" = ")
+                    .append(batchName).append('[').append(i).append("];\n");
+            appendChecks(builder, unit.endpoints().get(i), code);
+        }
+        appendThinkTime(builder);
+    }
+
+    /**
+     * Writes the init-context constants used by hoisted endpoint code: the URL, body and request params
+     * of every operation, each distinct status list (with its checks when instrumented) and the request
+     * arrays of {@code http.batch()} calls. Names only depend on the operation, so cached blocks stay valid.
+     */
+    public void writeInitConstants(Appendable out) throws IOException {
+        writeInitConstants(out, planUnits(getCompiledSpec()));
+    }
 
-                        String inValue = param.path("in").asText();
-                        if ("path".equals(inValue)) {
-                            // Replace {param} in path with value (add null safety)
-                            finalPath = finalPath.replaceAll("\\{" + name + "\\}", value);
-                        } else if ("query".equals(inValue)) {
-                            paramList.add(name + "=" + value);
+    /** Init-context constants of a single tag group, for the module that holds it. */
+    public void writeInitConstants(Appendable out, String tag) throws IOException {
+        Map<String, List<Unit>> units = planUnits(getCompiledSpec());
+        units.keySet().retainAll(Set.of(tag));
+        writeInitConstants(out, units);
+    }
+
+    private void writeInitConstants(Appendable out, Map<String, List<Unit>> planned) throws IOException {
+        Set<String> statusLists = new HashSet<>();
+        StringBuilder js = new StringBuilder();
+        for (List<Unit> units : planned.values()) {
+            for (Unit unit : units) {
+                js.setLength(0);
+                for (CompiledSpec.Operation ep : unit.endpoints()) {
+                    EndpointCode code = prepare(ep);
+                    String status = statusConstant(ep);
+                    if (statusLists.add(status)) {
+                        js.append("const ").append(status).append(" = ").append(code.jsStatusArr()).append(";\n");
+                        if (options.isInstrumented()) {
+                            js.append("const ").append(checksConstant(ep))
+                                    .append(" = Object.assign({ 'status is documented': r => ").append(status)
+                                    .append(".includes(r.status) }, RESPONSE_CHECKS);\n");
                         }
                     }
-                    if (!paramList.isEmpty()) {
-                        queryParams.append("?").append(String.join("&", paramList));
+                    if (ep.data() == null) {
+                        js.append("const URL_").append(code.safeName()).append(" = `${BASE_URL}").append(code.url()).append("`;\n");
+                    }
+                    if (code.sendsBody() && dataBodyColumn(ep) < 0) {
+                        js.append("const BODY_").append(code.safeName()).append(" = JSON.stringify(").append(ep.bodyJson()).append(");\n");
+                    }
+                    if (tagsRequests(ep)) {
+                        js.append("const PARAMS_").append(code.safeName()).append(" = ").append(requestParams(ep, code)).append(";\n");
+                    }
+                }
+                if (unit.batched() && !hasData(unit)) {
+                    js.append("const BATCH_").append(unit.endpoints().get(0).safeName()).append(" = [\n");
+                    for (CompiledSpec.Operation ep : unit.endpoints()) {
+                        js.append("    ['").append(ep.method().toUpperCase()).append("', ").append(hoistedUrl(ep)).append(", ")
+                                .append(Objects.requireNonNullElse(hoistedBody(ep), "null")).append(", ")
+                                .append(paramsConstant(ep)).append("],\n");
                     }
+                    js.append("];\n");
                 }
+                out.append(js);
+            }
+        }
+        out.append("\n");
+    }
 
-                String method = ep.method.toLowerCase();
-                boolean hasBody = ep.details.has("requestBody");
-                String bodyBlock = "";
-                if (hasBody) {
-                    bodyBlock = "  let body_" + safeName + " = JSON.stringify(" +
-                            requestBodyBuilder.buildBodyJson(ep.details.get("requestBody"), components) + ");\n";
+    /** Request and checks of a unit, referencing the constants from {@link #writeInitConstants(Appendable)}. */
+    private void generateHoistedUnit(StringBuilder builder, Unit unit) {
+        List<CompiledSpec.Operation> endpoints = unit.endpoints();
+        String batchName = "batch_" + endpoints.get(0).safeName();
+        if (unit.batched()) {
+            for (CompiledSpec.Operation ep : endpoints) {
+                appendComment(builder, ep);
+                builder.append(prepare(ep).bodyBlock());
+            }
+            if (hasData(unit)) {
+                // Rows change every iteration, so the request array is built in place
+                builder.append("   let ").append(batchName).append(" = http.batch([\n");
+                for (CompiledSpec.Operation ep : endpoints) {
+                    builder.append("      ['").append(ep.method().toUpperCase()).append("', ").append(hoistedUrl(ep)).append(", ")
+                            .append(Objects.requireNonNullElse(hoistedBody(ep), "null")).append(", ")
+                            .append(paramsConstant(ep)).append("],\n");
                 }
+                builder.append("   ]);\n");
+            } else {
+                builder.append("   let ").append(batchName).append(" = http.batch(BATCH_").append(endpoints.get(0).safeName()).append(");\n");
+            }
+        }
+        for (int i = 0; i < endpoints.size(); i++) {
+            CompiledSpec.Operation ep = endpoints.get(i);
+            String response = "response_" + ep.safeName();
+            if (unit.batched()) {
+                builder.append("   let ").append(response).append(" = ").append(batchName).append('[').append(i).append("];\n");
+            } else {
+                String body = hoistedBody(ep);
+                appendComment(builder, ep);
+                builder.append(prepare(ep).bodyBlock())
+                        .append("   let ").append(response).append(" = http.").append(ep.method().toLowerCase())
+                        .append('(').append(hoistedUrl(ep)).append(", ")
+                        .append(body != null ? body + ", " : "")
+                        .append(paramsConstant(ep)).append(");\n");
+            }
+            if (options.isInstrumented()) {
+                builder.append("   checkOperation(").append(response).append(", ").append(statusConstant(ep)).append(", ")
+                        .append(checksConstant(ep)).append(", ").append(paramsConstant(ep)).append(".tags, duration_")
+                        .append(ep.safeName()).append(", errors_").append(ep.safeName()).append(");\n");
+            } else {
+                builder.append("   checkEndpoint(").append(response).append(", ").append(statusConstant(ep))
+                        .append(", `[").append(ep.method().toUpperCase()).append("] ").append(prepare(ep).urlForMsg()).append("`);\n");
+            }
+        }
+        appendThinkTime(builder);
+    }
 
-                // --- Dynamically collect all possible status codes for this endpoint
-                Set<String> statusCodes = new LinkedHashSet<>();
-                JsonNode responses = ep.details.get("responses");
-                if (responses != null) {
-                    Iterator<String> fieldNames = responses.fieldNames();
-                    while (fieldNames.hasNext()) {
-                        String code = fieldNames.next();
-                        if (code.matches("\\d+")) {
-                            statusCodes.add(code);
-                        }
+    /** URL of a hoisted request: its constant, or a template literal when it reads test data. */
+    private String hoistedUrl(CompiledSpec.Operation ep) {
+        return ep.data() == null ? "URL_" + ep.safeName() : "`${BASE_URL}" + prepare(ep).url() + "`";
+    }
+
+    /** Body of a hoisted request: its constant, its test data column, or {@code null} when none is sent. */
+    private static String hoistedBody(CompiledSpec.Operation ep) {
+        if (!sendsBody(ep)) return null;
+        int column = dataBodyColumn(ep);
+        return column < 0 ? "BODY_" + ep.safeName() : "data_" + ep.safeName() + "[" + column + "]";
+    }
+
+    private static int dataBodyColumn(CompiledSpec.Operation ep) {
+        return ep.data() == null ? -1 : ep.data().column(CompiledSpec.DataSet.BODY);
+    }
+
+    private static boolean hasData(Unit unit) {
+        for (CompiledSpec.Operation ep : unit.endpoints()) {
+            if (ep.data() != null) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Whether the operation's requests carry its name tag: always when they read test data, whose varying
+     * URLs would otherwise each become their own {@code name} and {@code url} time series, and when a
+     * latency threshold is set on the operation's name.
+     */
+    private boolean tagsRequests(CompiledSpec.Operation ep) {
+        return options.usesScenarios() || options.isInstrumented() || options.isSummaryJson() || ep.data() != null
+                || !ep.latencyThresholds().isEmpty();
+    }
+
+    private static boolean sendsBody(CompiledSpec.Operation ep) {
+        return ep.hasRequestBody() && !"get".equalsIgnoreCase(ep.method());
+    }
+
+    private String paramsConstant(CompiledSpec.Operation ep) {
+        return tagsRequests(ep) ? "PARAMS_" + ep.safeName() : "PARAMS";
+    }
+
+    private static String statusConstant(CompiledSpec.Operation ep) {
+        return "STATUS_" + String.join("_", ep.statusCodes());
+    }
+
+    private static String checksConstant(CompiledSpec.Operation ep) {
+        return "CHECKS_" + String.join("_", ep.statusCodes());
+    }
+
+    private EndpointCode prepare(CompiledSpec.Operation ep) {
+        // Parameter handling (both path and query)
+        Map<String, String> pathValues = new HashMap<>();
+        StringBuilder queryParams = new StringBuilder();
+        for (CompiledSpec.Parameter param : ep.parameters()) {
+            if ("path".equals(param.in())) {
+                pathValues.putIfAbsent(param.name(), dataReference(ep, "path:" + param.name(),
+                        () -> PathTemplate.encodePathSegment(param.value())));
+            } else if ("query".equals(param.in())) {
+                queryParams.append(queryParams.isEmpty() ? '?' : '&')
+                        .append(PathTemplate.encodeQueryComponent(param.name())).append('=')
+                        .append(dataReference(ep, "query:" + param.name(), () -> PathTemplate.encodeQueryComponent(param.value())));
+            }
+        }
+        String finalPath = ep.template().expand(name -> COMPANY_VARIABLE.equals(name) ? "${COMPANY}" : pathValues.get(name));
+
+        String method = ep.method().toLowerCase();
+        String bodyBlock = "";
+        if (ep.data() != null) {
+            bodyBlock = "   let data_" + ep.safeName() + " = dataRow(DATA_" + ep.safeName() + ");\n";
+        }
+        if (ep.hasRequestBody() && !options.isHoisted()) {
+            int bodyColumn = ep.data() == null ? -1 : ep.data().column(CompiledSpec.DataSet.BODY);
+            if (bodyColumn >= 0) {
+                bodyBlock += "  let body_" + ep.safeName() + " = data_" + ep.safeName() + "[" + bodyColumn + "];\n";
+            } else {
+                if (ep.bodyJson() == null) {
+                    throw new IllegalStateException("Request body of " + ep.name() + " was not compiled");
+                }
+                bodyBlock += "  let body_" + ep.safeName() + " = JSON.stringify(" + ep.bodyJson() + ");\n";
+            }
+        }
+
+        // Prepare JS array string of codes
+        String jsStatusArr = "[" + String.join(", ", ep.statusCodes()) + "]";
+        String url = finalPath + queryParams;
+        // Labels of data-backed requests use the path template, keeping check names independent of the row
+        return new EndpointCode(ep.safeName(), ep.name(), method, url, bodyBlock, ep.hasRequestBody() && !"get".equals(method),
+                jsStatusArr, ep.data() == null ? url : ep.path());
+    }
+
+    /** {@code ${data_<op>[i]}} when the value is a column of the operation's test data, else the static value. */
+    private static String dataReference(CompiledSpec.Operation ep, String key, Supplier<String> staticValue) {
+        int column = ep.data() == null ? -1 : ep.data().column(key);
+        return column < 0 ? staticValue.get() : "${data_" + ep.safeName() + "[" + column + "]}";
+    }
+
+    /**
+     * Declares the SharedArray of every operation with test data, loaded from {@code ${DATA_DIR}/<op>.json}.
+     * The arrays are parsed once and shared by all VUs.
+     */
+    public void writeDataArrays(Appendable out) throws IOException {
+        writeDataArrays(out, getCompiledSpec().groups());
+    }
+
+    /** SharedArrays of a single tag group, for the module that holds it. */
+    public void writeDataArrays(Appendable out, String tag) throws IOException {
+        writeDataArrays(out, getCompiledSpec().groups().stream().filter(group -> group.tag().equals(tag)).toList());
+    }
+
+    private static void writeDataArrays(Appendable out, List<CompiledSpec.TagGroup> groups) throws IOException {
+        StringBuilder js = new StringBuilder();
+        for (CompiledSpec.TagGroup group : groups) {
+            for (CompiledSpec.Operation ep : group.operations()) {
+                if (ep.data() == null) continue;
+                js.append("const DATA_").append(ep.safeName()).append(" = new SharedArray('").append(ep.safeName())
+                        .append("', () => JSON.parse(open(`${DATA_DIR}/").append(ep.safeName()).append(".json`)));\n");
+            }
+        }
+        out.append(js.append('\n'));
+    }
+
+    /**
+     * Request params; scenario runs, instrumented scripts, JSON summaries, test data and SLOs tag requests with their
+     * operation name, which replaces the URL as k6's {@code name} tag and keeps per-operation metrics low-cardinality.
+     */
+    private String requestParams(CompiledSpec.Operation ep, EndpointCode code) {
+        if (!tagsRequests(ep)) return "{ headers: HEADERS }";
+        return "{ headers: HEADERS, tags: { name: " + jsString(code.name()) + " } }";
+    }
+
+    /** Single-quoted JS string literal; control characters and line separators are escaped. */
+    static String jsString(String value) {
+        StringBuilder out = new StringBuilder(value.length() + 2).append('\'');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\'' -> out.append("\\'");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                default -> {
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
                     }
                 }
-                if (statusCodes.isEmpty()) statusCodes.add("200"); // default fallback
-
-                // Prepare JS array string of codes
-                String jsStatusArr = "[" + String.join(", ", statusCodes) + "]";
-                String urlForMsg = finalPath + queryParams;
-
-                builder.append("// Endpoint: ").append(ep.path).append("\n")
-                        .append("// Method: ").append(ep.method.toUpperCase()).append("\n")
-                        .append(bodyBlock)
-                        .append("   let response_").append(safeName).append(" = http.")
-                        .append(method).append("(`${BASE_URL}").append(finalPath).append(queryParams).append("`, ")
-                        .append((hasBody && !"get".equals(method)) ? "body_" + safeName + ", { headers: HEADERS }" : "{ headers: HEADERS }")
-                        .append(");\n")
-                        // Restore the info log for every request (positive/negative)
-                        .append("   console.log(`[STATUS][status is ${response_").append(safeName).append(".status}]")
-                        .append("[var=response_").append(safeName).append("][method=").append(ep.method.toUpperCase())
-                        .append("] ${response_").append(safeName).append(".request.method} ${response_").append(safeName).append(".request.url} - got ${response_").append(safeName).append(".status}`);\n")
-                        .append("   check(response_").append(safeName).append(", Object.assign({},\n")
-                        .append("    (() => {\n")
-                        .append("      let allowed = ").append(jsStatusArr).append(";\n")
-                        .append("      let got = response_").append(safeName).append(".status;\n")
-                        .append("      let msg = `[")
-                        .append(ep.method.toUpperCase()).append("] ").append(urlForMsg)
-                        .append(" status is ${got}`;\n")
-                        .append("      let obj = {};\n")
-                        .append("      if (allowed.includes(got)) obj[msg] = r => r.status === got;\n")
-                        .append("      return obj;\n")
-                        .append("    })(),\n")
-                        .append("    {\n")
-                        .append("      'response has body': r => r.body && r.body.length > 0,\n")
-                        .append("      'content-type is JSON': r => r.headers['Content-Type'] && r.headers['Content-Type'].includes('application/json'),\n")
-                        .append("      'response < 500ms': r => r.timings.duration < 500\n")
-                        .append("    }));\n")
-                        .append("   sleep(1);\n\n");
             }
+        }
+        return out.append('\'').toString();
+    }
+
+    private static void appendComment(StringBuilder builder, CompiledSpec.Operation ep) {
+        builder.append("// Endpoint: ").append(ep.path()).append("\n")
+                .append("// Method: ").append(ep.method().toUpperCase()).append("\n");
+    }
 
-            output.put(groupName, builder);
+    private void appendChecks(StringBuilder builder, CompiledSpec.Operation ep, EndpointCode code) {
+        if (options.getAuthMode() == GenerationOptions.AuthMode.SETUP) {
+            builder.append("   noteUnauthorized(response_").append(code.safeName()).append(");\n");
         }
+        appendLog(builder, ep, code);
+        if (options.isInstrumented()) {
+            appendInstrumentedChecks(builder, code);
+            return;
+        }
+        String safeName = code.safeName();
+        builder
+                .append("   check(response_").append(safeName).append(", Object.assign({},\n")
+                .append("    (() => {\n")
+                .append("      let allowed = ").append(code.jsStatusArr()).append(";\n")
+                .append("      let got = response_").append(safeName).append(".status;\n")
+                .append("      let msg = `[")
+                .append(ep.method().toUpperCase()).append("] ").append(code.urlForMsg())
+                .append(" status is ${got}`;\n")
+                .append("      let obj = {};\n")
+                .append("      if (allowed.includes(got)) obj[msg] = r => r.status === got;\n")
+                .append("      return obj;\n")
+                .append("    })(),\n")
+                .append("    {\n")
+                .append("      'response has body': r => r.body && r.body.length > 0,\n")
+                .append("      'content-type is JSON': r => r.headers['Content-Type'] && r.headers['Content-Type'].includes('application/json'),\n")
+                .append("      'response < 500ms': r => r.timings.duration < 500\n")
+                .append("    }));\n");
+    }
 
-        return output;
+    /** Logs the response status line according to the configured {@link GenerationOptions.LogMode}. */
+    private void appendLog(StringBuilder builder, CompiledSpec.Operation ep, EndpointCode code) {
+        String safeName = code.safeName();
+        String call = switch (options.getLogMode()) {
+            case ALL -> "   console.log(";
+            case ERRORS -> "   if (!" + code.jsStatusArr() + ".includes(response_" + safeName + ".status)) console.warn(";
+            case SAMPLED -> "   if (Math.random() * " + Math.max(1, options.getLogSampleRate()) + " < 1) console.log(";
+            case OFF -> null;
+        };
+        if (call == null) return;
+        builder.append(call)
+                .append("`[STATUS][status is ${response_").append(safeName).append(".status}]")
+                .append("[var=response_").append(safeName).append("][method=").append(ep.method().toUpperCase())
+                .append("] ${response_").append(safeName).append(".request.method} ${response_").append(safeName).append(".request.url} - got ${response_").append(safeName).append(".status}`);\n");
+    }
+
+    /**
+     * Checks with fixed names, tagged with the operation name, followed by the operation's duration
+     * trend and unexpected-status rate (declared in the init context by {@link ScriptBuilder}).
+     */
+    private static void appendInstrumentedChecks(StringBuilder builder, EndpointCode code) {
+        String response = "response_" + code.safeName();
+        builder.append("   check(").append(response).append(", {\n")
+                .append("      'status is documented': r => ").append(code.jsStatusArr()).append(".includes(r.status),\n")
+                .append("      'response has body': r => r.body && r.body.length > 0,\n")
+                .append("      'content-type is JSON': r => r.headers['Content-Type'] && r.headers['Content-Type'].includes('application/json'),\n")
+                .append("      'response < 500ms': r => r.timings.duration < 500\n")
+                .append("   }, { name: ").append(jsString(code.name())).append(" });\n")
+                .append("   duration_").append(code.safeName()).append(".add(").append(response).append(".timings.duration);\n")
+                .append("   errors_").append(code.safeName()).append(".add(!").append(code.jsStatusArr())
+                .append(".includes(").append(response).append(".status));\n");
+    }
+
+    private void appendThinkTime(StringBuilder builder) {
+        double seconds = options.getThinkTimeSeconds();
+        if (seconds > 0) {
+            builder.append("   sleep(").append(jsNumber(seconds)).append(");\n");
+        }
+        builder.append("\n");
+    }
+
+    static String jsNumber(double value) {
+        return value == Math.rint(value) ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    static boolean isStatusCode(String code) {
+        if (code.isEmpty()) return false;
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    /** Replaces every character that is not an ASCII letter or digit with {@code _}. */
+    static String safeIdentifier(String value) {
+        char[] chars = value.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            char c = chars[i];
+            boolean alphanumeric = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+            if (!alphanumeric) chars[i] = '_';
+        }
+        return new String(chars);
     }
-}
\ No newline at end of file
+}
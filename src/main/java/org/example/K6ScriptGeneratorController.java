@@ -1,28 +1,273 @@
 package org.example;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPInputStream;
 
 @RestController
 @RequestMapping("/api/k6")
 @RequiredArgsConstructor
 public class K6ScriptGeneratorController {
 
+    private static final MediaType JAVASCRIPT = MediaType.parseMediaType("application/javascript");
+    private static final MediaType ZIP = MediaType.parseMediaType("application/zip");
+
+    private static final Logger logger = LoggerFactory.getLogger(K6ScriptGeneratorController.class);
+    private static final long JOB_EVENTS_TIMEOUT_MS = Duration.ofMinutes(10).toMillis();
+    private static final String RETRY_AFTER_SECONDS = "5";
+
     private final K6ScriptGeneratorService generatorService;
+    private final BatchGenerationService batchGenerationService;
+    private final GenerationJobService jobService;
+    private final ResultsAnalyzer resultsAnalyzer;
+    private final SpecSources specSources;
 
+    /**
+     * Generates a script and waits for it. Runs as a {@link GenerationJobService} job, so it joins an
+     * identical job that is already in progress.
+     */
     @GetMapping("/generate")
-    public ResponseEntity<String> generateK6Script() {
-        String bearerToken = "";
-        String swaggerUrl = "";
+    public ResponseEntity<String> generateK6Script(@RequestParam String swaggerUrl,
+                                                   @RequestParam(defaultValue = "") String bearerToken,
+                                                   @RequestParam(required = false) String name,
+                                                   @RequestParam(defaultValue = "false") boolean modular,
+                                                   @RequestParam(defaultValue = "0") int dataRows,
+                                                   @RequestParam(defaultValue = "1") long dataSeed,
+                                                   @RequestParam(defaultValue = "STATIC") GenerationOptions.AuthMode auth,
+                                                   @RequestParam(required = false) String loginOperation,
+                                                   @RequestParam(defaultValue = "false") boolean summary) {
+        String scriptName = K6ScriptGeneratorService.scriptNameFor(name != null ? name : swaggerUrl);
         try {
-            generatorService.generateK6ScriptFromSwagger(swaggerUrl, bearerToken);
-            return ResponseEntity.ok("K6 script generated successfully in ~/Documents/scripts folder and opened");
-        } catch (Exception e) {
+            Path script = jobService.submit(specSources.resolve(swaggerUrl), bearerToken, scriptName, options(modular, dataRows, dataSeed, auth, loginOperation, summary))
+                    .result().get();
+            return ResponseEntity.ok("K6 script generated successfully: " + script);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        } catch (RejectedExecutionException e) {
+            return tooManyJobs(e);
+        } catch (ExecutionException e) {
+            return ResponseEntity.internalServerError().body("Error: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             return ResponseEntity.internalServerError().body("Error: " + e.getMessage());
         }
     }
-}
 
+    /**
+     * Submits an asynchronous generation job and returns its status with {@code 202 Accepted};
+     * {@code 429} with {@code Retry-After} when too many jobs are in progress.
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<?> submitJob(@RequestParam String swaggerUrl,
+                                       @RequestParam(defaultValue = "") String bearerToken,
+                                       @RequestParam(required = false) String name,
+                                       @RequestParam(defaultValue = "false") boolean modular,
+                                       @RequestParam(defaultValue = "0") int dataRows,
+                                       @RequestParam(defaultValue = "1") long dataSeed,
+                                       @RequestParam(defaultValue = "STATIC") GenerationOptions.AuthMode auth,
+                                       @RequestParam(required = false) String loginOperation,
+                                       @RequestParam(defaultValue = "false") boolean summary) {
+        String scriptName = K6ScriptGeneratorService.scriptNameFor(name != null ? name : swaggerUrl);
+        try {
+            GenerationJob job = jobService.submit(specSources.resolve(swaggerUrl), bearerToken, scriptName, options(modular, dataRows, dataSeed, auth, loginOperation, summary));
+            return ResponseEntity.accepted().location(URI.create("/api/k6/jobs/" + job.getId())).body(job.status());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        } catch (RejectedExecutionException e) {
+            return tooManyJobs(e);
+        }
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<GenerationJob.Status> jobStatus(@PathVariable String id) {
+        return ResponseEntity.of(jobService.find(id).map(GenerationJob::status));
+    }
+
+    /**
+     * Streams the job's status as server-sent {@code status} events: the current status, then one event when
+     * generation starts and one when it finishes, after which the stream ends.
+     */
+    @GetMapping(value = "/jobs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> jobEvents(@PathVariable String id) {
+        Optional<GenerationJob> found = jobService.find(id);
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        GenerationJob job = found.get();
+        SseEmitter emitter = new SseEmitter(JOB_EVENTS_TIMEOUT_MS);
+        GenerationJob.State state = sendStatus(emitter, job).state();
+        if (state == GenerationJob.State.QUEUED) {
+            job.started().thenRun(() -> sendStatus(emitter, job));
+        }
+        if (state == GenerationJob.State.QUEUED || state == GenerationJob.State.RUNNING) {
+            job.result().whenComplete((script, error) -> {
+                sendStatus(emitter, job);
+                emitter.complete();
+            });
+        } else {
+            emitter.complete();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * The generated script of a finished job; {@code 409} while the job is in progress and {@code 500} with the
+     * error when it failed. For a modular script this is its main entry, next to its modules.
+     */
+    @GetMapping("/jobs/{id}/script")
+    public ResponseEntity<?> jobScript(@PathVariable String id) {
+        Optional<GenerationJob> found = jobService.find(id);
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        GenerationJob.Status status = found.get().status();
+        return switch (status.state()) {
+            case QUEUED, RUNNING -> ResponseEntity.status(HttpStatus.CONFLICT).body(status);
+            case FAILED -> ResponseEntity.internalServerError().body(status);
+            case SUCCEEDED -> ResponseEntity.ok().contentType(JAVASCRIPT).body(new FileSystemResource(status.script()));
+        };
+    }
+
+    /**
+     * Generates scripts for many specs concurrently and streams them back as a ZIP archive,
+     * one {@code <name>.js} entry per spec, written entry by entry as generation finishes.
+     */
+    @PostMapping(value = "/generate/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> generateBatch(@RequestBody BatchGenerationRequest request) {
+        if (request.specs() == null || request.specs().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        BatchGenerationRequest resolved;
+        try {
+            resolved = new BatchGenerationRequest(request.specs().stream().map(this::resolve).toList(),
+                    request.maxConcurrency(), request.options());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Batch generation rejected: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = outputStream ->
+                batchGenerationService.writeZip(resolved, resolved.optionsOrDefaults(), outputStream);
+        return ResponseEntity.ok()
+                .contentType(ZIP)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"k6-scripts.zip\"")
+                .body(body);
+    }
+
+    /**
+     * Streams the generated script in the response body while it is being generated.
+     */
+    @GetMapping("/generate/stream")
+    public ResponseEntity<StreamingResponseBody> streamK6Script(@RequestParam String swaggerUrl,
+                                                                @RequestParam(defaultValue = "") String bearerToken) {
+        String source;
+        try {
+            source = specSources.resolve(swaggerUrl);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Streaming generation rejected: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            try {
+                generatorService.writeK6Script(source, bearerToken, GenerationOptions.defaults(), writer);
+            } catch (Exception e) {
+                throw new IllegalStateException("Error: " + e.getMessage(), e);
+            }
+        };
+        return ResponseEntity.ok().contentType(JAVASCRIPT).body(body);
+    }
+
+    /**
+     * Analyzes the results of a k6 run, streamed in the request body as written by {@code k6 run --out json=<file>}
+     * (gzip-compressed with {@code Content-Encoding: gzip}), and compares them with the baseline stored under
+     * {@code name}. With {@code saveBaseline}, the run becomes the new baseline.
+     */
+    @PostMapping("/results/{name}")
+    public ResponseEntity<ResultsAnalyzer.Analysis> analyzeResults(@PathVariable String name,
+                                                                   @RequestParam(defaultValue = "false") boolean saveBaseline,
+                                                                   @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String encoding,
+                                                                   InputStream body) {
+        try (InputStream in = "gzip".equalsIgnoreCase(encoding) ? new GZIPInputStream(body, 1 << 16) : body) {
+            return ResponseEntity.ok(resultsAnalyzer.compare(name, resultsAnalyzer.analyze(in), saveBaseline));
+        } catch (JsonProcessingException e) {
+            logger.warn("Unreadable k6 results for '{}': {}", name, e.getOriginalMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IOException e) {
+            logger.error("Analyzing k6 results for '{}' failed: {}", name, e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @GetMapping("/results/{name}/baseline")
+    public ResponseEntity<RunReport> baseline(@PathVariable String name) throws IOException {
+        return ResponseEntity.of(resultsAnalyzer.findBaseline(name));
+    }
+
+    /** Stores a baseline, e.g. the JSON summary written by a script generated with {@code summary=true}. */
+    @PutMapping(value = "/results/{name}/baseline", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Void> saveBaseline(@PathVariable String name, @RequestBody RunReport baseline) throws IOException {
+        resultsAnalyzer.saveBaseline(name, baseline);
+        return ResponseEntity.noContent().build();
+    }
+
+    private static GenerationOptions options(boolean modular, int dataRows, long dataSeed,
+                                             GenerationOptions.AuthMode auth, String loginOperation, boolean summary) {
+        return GenerationOptions.builder().modular(modular).dataRows(dataRows).dataSeed(dataSeed)
+                .authMode(auth).loginOperation(loginOperation).summaryJson(summary).build();
+    }
+
+    /** The spec with its source checked; its script keeps the name derived from the source as given. */
+    private BatchGenerationRequest.SpecSource resolve(BatchGenerationRequest.SpecSource spec) {
+        String name = spec.name() != null && !spec.name().isBlank() ? spec.name() : spec.swaggerUrl();
+        return new BatchGenerationRequest.SpecSource(name, specSources.resolve(spec.swaggerUrl()), spec.bearerToken());
+    }
+
+    private static <T> ResponseEntity<T> tooManyJobs(RejectedExecutionException e) {
+        logger.warn("Generation rejected: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .build();
+    }
+
+    private static GenerationJob.Status sendStatus(SseEmitter emitter, GenerationJob job) {
+        GenerationJob.Status status = job.status();
+        try {
+            emitter.send(SseEmitter.event().name("status").data(status, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // The client went away or the stream has already ended
+            emitter.completeWithError(e);
+        }
+        return status;
+    }
+}
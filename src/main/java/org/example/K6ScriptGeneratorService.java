@@ -1,20 +1,28 @@
 package org.example;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.awt.Desktop;
-import java.io.File;
-import java.io.FileWriter;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Map;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Central service that coordinates Swagger parsing and K6 script generation using modular classes.
+ * Every run records stage timings and sizes through {@link GenerationMetrics}.
+ * With {@link GenerationOptions#isModular()} the script is written as a directory of ES modules;
+ * with test data enabled, its data files are written next to it.
  * Refactored for Java 21.
  */
 @Service
@@ -22,11 +30,26 @@ public class K6ScriptGeneratorService {
 
     private static final Logger logger = LoggerFactory.getLogger(K6ScriptGeneratorService.class);
     private static final String OUTPUT_DIR = System.getProperty("user.home") + "/Documents/scripts";
+    private static final String SCRIPT_NAME = "generatedK6Script";
+    private static final String CACHE_DIR = ".k6-cache";
+
+    private static final String SPEC_CACHE_DIR = ".spec-cache";
 
     private final ObjectMapper objectMapper;
+    private final SwaggerParser parser;
+    private final GenerationMetrics metrics;
 
+    /** Standalone use; metrics are kept in a local {@link SimpleMeterRegistry}. */
     public K6ScriptGeneratorService(ObjectMapper objectMapper) {
+        this(objectMapper, new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public K6ScriptGeneratorService(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
         this.objectMapper = objectMapper;
+        this.parser = new SwaggerParser(Duration.ofSeconds(10), Duration.ofSeconds(60),
+                new SpecCache(Path.of(OUTPUT_DIR, SPEC_CACHE_DIR)));
+        this.metrics = new GenerationMetrics(meterRegistry);
     }
 
     /**
@@ -37,40 +60,244 @@ public class K6ScriptGeneratorService {
      * @throws Exception if parsing or writing fails
      */
     public void generateK6ScriptFromSwagger(String swaggerUrl, String bearerToken) throws Exception {
-        logger.info("Fetching and parsing Swagger spec...");
-        var parser = new SwaggerParser();
-        JsonNode rootNode = parser.fetchSwaggerJson(swaggerUrl);
-
-        JsonNode paths = rootNode.get("paths");
-        JsonNode components = rootNode.path("components").path("schemas");
-
-        String companyValue = swaggerUrl.contains("url") ? "company_name" : "my-company";
-        String baseUrl = "";
-
-        logger.info("Generating grouped JS code blocks...");
-        var groupBuilder = new GroupFunctionBuilder(paths, components);
-        Map<String, StringBuilder> groupedFunctions = groupBuilder.buildGroupedFunctions();
+        generateK6ScriptFromSwagger(swaggerUrl, bearerToken, GenerationOptions.defaults());
+    }
 
-        logger.info("Assembling final script...");
-        var scriptBuilder = new ScriptBuilder();
-        String finalScript = scriptBuilder.buildFullScript(groupedFunctions, baseUrl, bearerToken, companyValue);
+    /**
+     * Generates a K6 script from the Swagger (OpenAPI) specification with custom generation options.
+     *
+     * @param swaggerUrl  the URL of the Swagger JSON
+     * @param bearerToken the Bearer token for authorization
+     * @param options     generation tuning such as parallelism or incremental regeneration
+     * @throws Exception if parsing or writing fails
+     */
+    public void generateK6ScriptFromSwagger(String swaggerUrl, String bearerToken, GenerationOptions options) throws Exception {
+        generateK6Script(swaggerUrl, bearerToken, SCRIPT_NAME, options);
+    }
 
+    /**
+     * Generates a K6 script into {@code <output dir>/<scriptName>.js}, so different specs
+     * never overwrite each other's output.
+     *
+     * @param swaggerUrl  the URL of the Swagger JSON
+     * @param bearerToken the Bearer token for authorization
+     * @param scriptName  file name of the script without extension
+     * @param options     generation tuning such as parallelism or incremental regeneration
+     * @return path of the written script
+     * @throws Exception if parsing or writing fails
+     */
+    public Path generateK6Script(String swaggerUrl, String bearerToken, String scriptName, GenerationOptions options) throws Exception {
         Path outputDir = Path.of(OUTPUT_DIR);
         Files.createDirectories(outputDir);
-        File outputFile = outputDir.resolve("generatedK6Script.js").toFile();
+        GenerationCache cache = options.isIncremental()
+                ? GenerationCache.load(outputDir.resolve(CACHE_DIR).resolve(scriptName + ".json"), options)
+                : null;
 
-        try (var writer = new FileWriter(outputFile)) {
-            writer.write(finalScript);
-            logger.info("K6 script saved to: {}", outputFile.getAbsolutePath());
+        Path outputFile;
+        if (options.isModular() || options.getDataRows() > 0) {
+            Path filesDir = options.isModular() ? outputDir.resolve(scriptName) : outputDir;
+            deleteGenerated(options.isModular() ? filesDir : outputDir.resolve(dataDirectory(scriptName)));
+            writeK6Files(swaggerUrl, bearerToken, scriptName, options, directoryOutput(filesDir), cache);
+            outputFile = filesDir.resolve(options.isModular() ? ScriptBuilder.MAIN_ENTRY : scriptName + ".js");
+        } else {
+            outputFile = outputDir.resolve(scriptName + ".js");
+            try (Writer writer = Files.newBufferedWriter(outputFile)) {
+                writeK6Script(swaggerUrl, bearerToken, options, writer, cache);
+            }
+        }
+        logger.info("K6 script saved to: {}", outputFile.toAbsolutePath());
+        if (cache != null) {
+            cache.save();
+        }
+        return outputFile;
+    }
+
+    /**
+     * Generates a K6 script and streams it to the given writer as it is produced,
+     * without assembling the whole script in memory. The writer is not closed.
+     * Scripts with test data need their data files and are written with
+     * {@link #writeK6Files(String, String, String, GenerationOptions, ScriptBuilder.ModuleOutput)} instead.
+     *
+     * @param swaggerUrl  the URL of the Swagger JSON
+     * @param bearerToken the Bearer token for authorization
+     * @param options     generation tuning such as parallelism
+     * @param out         destination of the script
+     * @throws Exception if parsing or writing fails
+     */
+    public void writeK6Script(String swaggerUrl, String bearerToken, GenerationOptions options, Writer out) throws Exception {
+        if (options.getDataRows() > 0) {
+            throw new IllegalArgumentException("Scripts with test data must be written together with their data files");
         }
+        writeK6Script(swaggerUrl, bearerToken, options, out, null);
+    }
+
+    /**
+     * Generates a K6 script together with the files it loads, each created by {@code output}:
+     * the modules of a modular script (see {@link ScriptBuilder#writeModules}), or {@code <scriptName>.js}
+     * and its test data in {@code <scriptName>.data/}.
+     *
+     * @param swaggerUrl  the URL of the Swagger JSON
+     * @param bearerToken the Bearer token for authorization
+     * @param scriptName  file name of a single-file script without extension
+     * @param options     generation tuning such as parallelism
+     * @param output      creates each file; every file is closed once written
+     * @throws Exception if parsing or writing fails
+     */
+    public void writeK6Files(String swaggerUrl, String bearerToken, String scriptName, GenerationOptions options,
+                             ScriptBuilder.ModuleOutput output) throws Exception {
+        writeK6Files(swaggerUrl, bearerToken, scriptName, options, output, null);
+    }
 
+    private void writeK6Files(String swaggerUrl, String bearerToken, String scriptName, GenerationOptions options,
+                              ScriptBuilder.ModuleOutput output, GenerationCache cache) throws Exception {
+        generate(swaggerUrl, bearerToken, options, cache, (groupBuilder, baseUrl, company) -> {
+            List<CountingWriter> files = new ArrayList<>();
+            ScriptBuilder.ModuleOutput counted = path -> {
+                CountingWriter file = new CountingWriter(output.create(path));
+                files.add(file);
+                return file;
+            };
+            if (options.isModular()) {
+                new ScriptBuilder().writeModules(counted, groupBuilder, baseUrl, bearerToken, company);
+            } else {
+                String dataDirectory = dataDirectory(scriptName);
+                try (Writer script = counted.create(scriptName + ".js")) {
+                    new ScriptBuilder("./" + dataDirectory).writeFullScript(script, groupBuilder, baseUrl, bearerToken, company);
+                }
+                new ScriptBuilder().writeDataFiles(path -> counted.create(dataDirectory + "/" + path), groupBuilder);
+            }
+            long bytes = 0;
+            for (CountingWriter file : files) bytes += file.bytes;
+            return bytes;
+        });
+    }
+
+    private void writeK6Script(String swaggerUrl, String bearerToken, GenerationOptions options, Writer out,
+                               GenerationCache cache) throws Exception {
+        generate(swaggerUrl, bearerToken, options, cache, (groupBuilder, baseUrl, company) -> {
+            var counted = new CountingWriter(out);
+            new ScriptBuilder().writeFullScript(counted, groupBuilder, baseUrl, bearerToken, company);
+            counted.flush();
+            return counted.bytes;
+        });
+    }
+
+    /** Writes the generated code and returns the number of bytes written. */
+    @FunctionalInterface
+    private interface Emitter {
+        long emit(GroupFunctionBuilder groupBuilder, String baseUrl, String company) throws IOException;
+    }
+
+    private static String dataDirectory(String scriptName) {
+        return scriptName + ".data";
+    }
+
+    private void generate(String swaggerUrl, String bearerToken, GenerationOptions options, GenerationCache cache,
+                          Emitter emitter) throws Exception {
+        GenerationMetrics.Run run = metrics.start(swaggerUrl);
+        boolean success = false;
         try {
-            if (Desktop.isDesktopSupported()) {
-                Desktop.getDesktop().open(outputFile);
-                logger.info("K6 script opened in default editor");
+            CompiledSpec spec = fetchAndCompile(swaggerUrl, options, cache, run);
+
+            String companyValue = swaggerUrl.contains("url") ? "company_name" : "my-company";
+            String baseUrl = "";
+
+            logger.info("Generating and writing grouped JS code blocks...");
+            long start = System.nanoTime();
+            var groupBuilder = new GroupFunctionBuilder(spec, options).useCache(cache);
+            long bytes = emitter.emit(groupBuilder, baseUrl, companyValue);
+            run.generated(Duration.ofNanos(System.nanoTime() - start));
+            run.written(bytes);
+            if (cache != null) {
+                run.cacheLookups("generation", cache.getHits(), cache.getMisses());
             }
-        } catch (Exception e) {
-            logger.warn("Could not open the file automatically: {}", e.getMessage());
+            success = true;
+        } finally {
+            run.finish(success);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Fetches the spec and compiles it; the parsed tree is unreachable once this returns,
+     * so only the compact model is retained while the script is written.
+     */
+    private CompiledSpec fetchAndCompile(String swaggerUrl, GenerationOptions options, GenerationCache cache,
+                                         GenerationMetrics.Run run) throws IOException {
+        logger.info("Fetching and parsing Swagger spec...");
+        SwaggerParser.Fetch fetch = parser.fetch(swaggerUrl, options.getDataRows() > 0);
+        run.fetched(fetch);
+
+        logger.info("Compiling operations and request bodies...");
+        long start = System.nanoTime();
+        CompiledSpec spec = SpecCompiler.compile(fetch.spec(), options, cache);
+        run.compiled(spec, Duration.ofNanos(System.nanoTime() - start));
+        return spec;
+    }
+
+    /** Creates module files below {@code dir}, creating subdirectories as needed. */
+    static ScriptBuilder.ModuleOutput directoryOutput(Path dir) {
+        return path -> {
+            Path file = dir.resolve(path);
+            Files.createDirectories(file.getParent());
+            return Files.newBufferedWriter(file);
+        };
+    }
+
+    /**
+     * Removes the scripts and data files of a previous run, so groups or operations that no longer exist
+     * leave nothing stale behind.
+     */
+    private static void deleteGenerated(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) return;
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.filter(f -> f.toString().endsWith(".js") || f.toString().endsWith(".json")).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /** Counts the UTF-8 encoded size of everything written through it. */
+    private static final class CountingWriter extends FilterWriter {
+        private long bytes;
+
+        CountingWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            super.write(c);
+            bytes += utf8Length((char) c);
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            super.write(buffer, offset, length);
+            for (int i = offset; i < offset + length; i++) bytes += utf8Length(buffer[i]);
+        }
+
+        @Override
+        public void write(String text, int offset, int length) throws IOException {
+            super.write(text, offset, length);
+            for (int i = offset; i < offset + length; i++) bytes += utf8Length(text.charAt(i));
+        }
+
+        /** Surrogates count 2 each, so a pair adds up to its 4 encoded bytes. */
+        private static int utf8Length(char c) {
+            if (c < 0x80) return 1;
+            if (c < 0x800 || Character.isSurrogate(c)) return 2;
+            return 3;
+        }
+    }
+
+    /**
+     * Derives a file-system safe script name from a spec URL or path,
+     * e.g. {@code https://host/orders/v3/api-docs} becomes {@code host_orders_v3_api_docs}.
+     */
+    public static String scriptNameFor(String source) {
+        String name = source.replaceFirst("^[a-zA-Z]+:/+", "")
+                .replaceFirst("\\.(json|ya?ml)$", "");
+        name = GroupFunctionBuilder.safeIdentifier(name).replaceAll("_+", "_").replaceAll("^_|_$", "");
+        return name.isEmpty() ? SCRIPT_NAME : name;
+    }
+}
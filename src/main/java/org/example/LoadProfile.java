@@ -0,0 +1,150 @@
+package org.example;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Open- or closed-model load profile of one k6 scenario.
+ * Use the factory methods for the supported executors; fields that do not apply to the
+ * chosen executor are ignored when the scenario is emitted. Profiles may come straight from a request body,
+ * so they are checked when built: an executor is required, durations must use k6's syntax (e.g. {@code 30s},
+ * {@code 1m30s}) and arrival-rate executors need at least one pre-allocated VU and no fewer {@code maxVUs}.
+ *
+ * @param executor        k6 executor of the scenario
+ * @param rate            iterations per {@code timeUnit} (constant-arrival-rate)
+ * @param startRate       initial iterations per {@code timeUnit} (ramping-arrival-rate)
+ * @param startVUs        initial virtual users (ramping-vus), or all of them (constant-vus)
+ * @param timeUnit        period the rates refer to, e.g. {@code 1s}
+ * @param duration        total scenario duration (constant-arrival-rate, constant-vus)
+ * @param preAllocatedVUs virtual users initialized before the test (arrival-rate executors)
+ * @param maxVUs          upper bound of virtual users (arrival-rate executors)
+ * @param stages          ramp stages (ramping executors)
+ */
+public record LoadProfile(Executor executor, int rate, int startRate, int startVUs, String timeUnit, String duration,
+                          int preAllocatedVUs, int maxVUs, List<Stage> stages) {
+
+    private static final Pattern K6_DURATION = Pattern.compile("(\\d+(ms|s|m|h))+");
+
+    public LoadProfile {
+        if (executor == null) {
+            throw new IllegalArgumentException("Load profile needs an executor");
+        }
+        requireDuration("timeUnit", timeUnit);
+        requireDuration("duration", duration);
+        stages = stages == null ? List.of() : List.copyOf(stages);
+        for (Stage stage : stages) {
+            if (stage.duration() == null) {
+                throw new IllegalArgumentException("Stage needs a duration");
+            }
+            requireDuration("stage duration", stage.duration());
+        }
+        if (executor == Executor.CONSTANT_ARRIVAL_RATE || executor == Executor.RAMPING_ARRIVAL_RATE) {
+            if (preAllocatedVUs < 1) {
+                throw new IllegalArgumentException("preAllocatedVUs must be at least 1, was " + preAllocatedVUs);
+            }
+            if (maxVUs < preAllocatedVUs) {
+                throw new IllegalArgumentException("maxVUs must be at least preAllocatedVUs (" + preAllocatedVUs + "), was " + maxVUs);
+            }
+        }
+    }
+
+    public enum Executor {
+        CONSTANT_ARRIVAL_RATE("constant-arrival-rate"),
+        RAMPING_ARRIVAL_RATE("ramping-arrival-rate"),
+        RAMPING_VUS("ramping-vus"),
+        CONSTANT_VUS("constant-vus");
+
+        private final String k6Name;
+
+        Executor(String k6Name) {
+            this.k6Name = k6Name;
+        }
+
+        public String k6Name() {
+            return k6Name;
+        }
+    }
+
+    /** Ramp to {@code target} (rate or VUs, depending on the executor) over {@code duration}. */
+    public record Stage(String duration, int target) {
+    }
+
+    /** {@code null} stands for the executor's default. */
+    private static void requireDuration(String field, String value) {
+        if (value != null && !K6_DURATION.matcher(value).matches()) {
+            throw new IllegalArgumentException(field + " is not a k6 duration such as 30s or 1m30s: " + value);
+        }
+    }
+
+    public static LoadProfile constantArrivalRate(int rate, String timeUnit, String duration, int preAllocatedVUs, int maxVUs) {
+        return new LoadProfile(Executor.CONSTANT_ARRIVAL_RATE, rate, 0, 0, timeUnit, duration, preAllocatedVUs, maxVUs, List.of());
+    }
+
+    public static LoadProfile rampingArrivalRate(int startRate, String timeUnit, int preAllocatedVUs, int maxVUs, List<Stage> stages) {
+        return new LoadProfile(Executor.RAMPING_ARRIVAL_RATE, 0, startRate, 0, timeUnit, null, preAllocatedVUs, maxVUs, stages);
+    }
+
+    public static LoadProfile rampingVus(int startVUs, List<Stage> stages) {
+        return new LoadProfile(Executor.RAMPING_VUS, 0, 0, startVUs, null, null, 0, 0, stages);
+    }
+
+    public static LoadProfile constantVus(int vus, String duration) {
+        return new LoadProfile(Executor.CONSTANT_VUS, 0, 0, vus, null, duration, 0, 0, List.of());
+    }
+
+    /** The single-VU smoke test of scripts without load profiles, as a scenario. */
+    public static LoadProfile smokeTest() {
+        return constantVus(1, "3s");
+    }
+
+    /**
+     * Appends the scenario body, e.g. {@code { executor: 'constant-arrival-rate', rate: 10, ... }}.
+     */
+    void appendScenario(StringBuilder out, String execFunction) {
+        out.append("{ executor: ").append(GroupFunctionBuilder.jsString(executor.k6Name()));
+        switch (executor) {
+            case CONSTANT_ARRIVAL_RATE -> {
+                out.append(", rate: ").append(rate)
+                        .append(", timeUnit: ").append(GroupFunctionBuilder.jsString(timeUnitOrDefault()))
+                        .append(", duration: ").append(GroupFunctionBuilder.jsString(durationOrDefault()));
+                appendVUs(out);
+            }
+            case RAMPING_ARRIVAL_RATE -> {
+                out.append(", startRate: ").append(startRate)
+                        .append(", timeUnit: ").append(GroupFunctionBuilder.jsString(timeUnitOrDefault()));
+                appendVUs(out);
+                appendStages(out);
+            }
+            case RAMPING_VUS -> {
+                out.append(", startVUs: ").append(startVUs);
+                appendStages(out);
+            }
+            case CONSTANT_VUS -> out.append(", vus: ").append(startVUs)
+                    .append(", duration: ").append(GroupFunctionBuilder.jsString(durationOrDefault()));
+        }
+        out.append(", exec: ").append(GroupFunctionBuilder.jsString(execFunction)).append(" }");
+    }
+
+    private String timeUnitOrDefault() {
+        return timeUnit == null ? "1s" : timeUnit;
+    }
+
+    private String durationOrDefault() {
+        return duration == null ? "1m" : duration;
+    }
+
+    private void appendVUs(StringBuilder out) {
+        out.append(", preAllocatedVUs: ").append(preAllocatedVUs).append(", maxVUs: ").append(maxVUs);
+    }
+
+    private void appendStages(StringBuilder out) {
+        out.append(", stages: [");
+        for (int i = 0; i < stages.size(); i++) {
+            Stage stage = stages.get(i);
+            if (i > 0) out.append(", ");
+            out.append("{ duration: ").append(GroupFunctionBuilder.jsString(stage.duration()))
+                    .append(", target: ").append(stage.target()).append(" }");
+        }
+        out.append("]");
+    }
+}
@@ -0,0 +1,95 @@
+package org.example;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Computes a content hash of an operation for incremental regeneration.
+ * The hash covers the path, method, operation definition, effective parameters and every component
+ * schema the operation references directly or transitively, so editing a shared DTO invalidates
+ * all operations that use it and nothing else.
+ * Thread-safe.
+ */
+public class OperationFingerprinter {
+
+    private static final String COMPONENT_PREFIX = "#/components/schemas/";
+
+    private final JsonNode components;
+    private final Map<String, Set<String>> directRefs = new ConcurrentHashMap<>();
+
+    public OperationFingerprinter(JsonNode components) {
+        this.components = components;
+    }
+
+    /** @param safeName identifier suffix of the operation's variables, which depends on the other operations */
+    public String fingerprint(String path, String method, String safeName, JsonNode details, List<JsonNode> parameters) {
+        MessageDigest digest = sha256();
+        update(digest, method);
+        update(digest, path);
+        update(digest, safeName);
+        update(digest, details.toString());
+
+        Set<String> pending = new TreeSet<>();
+        collectRefs(details, pending);
+        for (JsonNode param : parameters) {
+            update(digest, param.toString());
+            collectRefs(param, pending);
+        }
+
+        // Walk the transitive closure of referenced schemas in a stable (sorted) order
+        Set<String> visited = new TreeSet<>();
+        Deque<String> queue = new ArrayDeque<>(pending);
+        while (!queue.isEmpty()) {
+            String name = queue.poll();
+            if (!visited.add(name)) continue;
+            queue.addAll(refsOf(name));
+        }
+        for (String name : visited) {
+            JsonNode schema = components == null ? null : components.get(name);
+            update(digest, name);
+            update(digest, schema == null ? "" : schema.toString());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private Set<String> refsOf(String schemaName) {
+        return directRefs.computeIfAbsent(schemaName, name -> {
+            Set<String> refs = new TreeSet<>();
+            if (components != null) collectRefs(components.get(name), refs);
+            return refs;
+        });
+    }
+
+    private static void collectRefs(JsonNode node, Set<String> refs) {
+        if (node == null) return;
+        if (node.isObject()) {
+            JsonNode ref = node.get("$ref");
+            if (ref != null && ref.isTextual() && ref.asText().startsWith(COMPONENT_PREFIX)) {
+                refs.add(ref.asText().substring(COMPONENT_PREFIX.length()));
+            }
+        }
+        if (node.isContainerNode()) {
+            for (JsonNode child : node) {
+                collectRefs(child, refs);
+            }
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.example;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves the effective parameter list of an operation.
+ * Path-level parameters are merged with operation-level ones, where an operation parameter
+ * overrides a path parameter with the same {@code name} and {@code in}.
+ * {@code $ref}s into {@code components.parameters} are followed.
+ */
+public class ParameterResolver {
+
+    private static final String COMPONENT_PREFIX = "#/components/parameters/";
+
+    private final JsonNode parameterComponents;
+
+    public ParameterResolver(JsonNode parameterComponents) {
+        this.parameterComponents = parameterComponents;
+    }
+
+    public List<JsonNode> resolve(JsonNode pathParameters, JsonNode operationParameters) {
+        Map<String, JsonNode> merged = new LinkedHashMap<>();
+        addAll(merged, pathParameters);
+        addAll(merged, operationParameters);
+        return new ArrayList<>(merged.values());
+    }
+
+    private void addAll(Map<String, JsonNode> merged, JsonNode parameters) {
+        if (parameters == null || !parameters.isArray()) return;
+        for (JsonNode param : parameters) {
+            JsonNode resolved = dereference(param);
+            JsonNode nameNode = resolved == null ? null : resolved.get("name");
+            if (nameNode == null) continue;
+            merged.put(resolved.path("in").asText() + ":" + nameNode.asText(), resolved);
+        }
+    }
+
+    private JsonNode dereference(JsonNode param) {
+        JsonNode ref = param.get("$ref");
+        if (ref == null) return param;
+        String refText = ref.asText();
+        if (parameterComponents == null || !refText.startsWith(COMPONENT_PREFIX)) return null;
+        return parameterComponents.get(refText.substring(COMPONENT_PREFIX.length()));
+    }
+
+    /**
+     * Picks a static value for a parameter: {@code example}, then {@code default}, then the first
+     * {@code enum} entry, looking at the parameter itself before its schema; falls back to {@code "value"}.
+     */
+    public static String sampleValue(JsonNode param) {
+        String value = literalValue(param);
+        if (value == null) value = literalValue(param.path("schema"));
+        return value != null ? value : "value";
+    }
+
+    private static String literalValue(JsonNode node) {
+        JsonNode exampleNode = node.get("example");
+        JsonNode defaultNode = node.get("default");
+        JsonNode enumNode = node.get("enum");
+
+        if (exampleNode != null) {
+            return exampleNode.isTextual() ? exampleNode.asText() : exampleNode.toString();
+        } else if (defaultNode != null) {
+            return defaultNode.isTextual() ? defaultNode.asText() : defaultNode.toString();
+        } else if (enumNode != null && enumNode.isArray() && enumNode.size() > 0) {
+            JsonNode first = enumNode.get(0);
+            return first.isTextual() ? first.asText() : first.toString();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,82 @@
+package org.example;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A Swagger path such as {@code /stores/{storeId}/orders} compiled once into alternating
+ * literal and variable segments, so values can be substituted without building regexes.
+ */
+public final class PathTemplate {
+
+    private final String path;
+    private final List<String> literals;
+    private final List<String> variables;
+
+    private PathTemplate(String path, List<String> literals, List<String> variables) {
+        this.path = path;
+        this.literals = literals;
+        this.variables = variables;
+    }
+
+    public static PathTemplate compile(String path) {
+        List<String> literals = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        int literalStart = 0;
+        int open = path.indexOf('{');
+        while (open >= 0) {
+            int close = path.indexOf('}', open + 1);
+            if (close < 0) break;
+            literals.add(path.substring(literalStart, open));
+            variables.add(path.substring(open + 1, close));
+            literalStart = close + 1;
+            open = path.indexOf('{', literalStart);
+        }
+        literals.add(path.substring(literalStart));
+        return new PathTemplate(path, List.copyOf(literals), List.copyOf(variables));
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public List<String> getVariables() {
+        return variables;
+    }
+
+    /**
+     * Substitutes every variable with the value returned by {@code values}.
+     * Values are inserted verbatim; variables without a value keep their {@code {name}} placeholder.
+     */
+    public String expand(Function<String, String> values) {
+        StringBuilder out = new StringBuilder(path.length() + 16);
+        for (int i = 0; i < variables.size(); i++) {
+            out.append(literals.get(i));
+            String value = values.apply(variables.get(i));
+            if (value != null) {
+                out.append(value);
+            } else {
+                out.append('{').append(variables.get(i)).append('}');
+            }
+        }
+        return out.append(literals.get(literals.size() - 1)).toString();
+    }
+
+    /** Percent-encodes a value for use as a single path segment. */
+    public static String encodePathSegment(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    /** Percent-encodes a query parameter name or value. */
+    public static String encodeQueryComponent(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -0,0 +1,229 @@
+package org.example;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonEOFException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.IntCountsHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregates k6 results written with {@code k6 run --out json=<file>} into a {@link RunReport} and compares
+ * runs with stored baselines.
+ * The NDJSON input is read with a streaming {@link JsonParser}, one point at a time: of each line only the
+ * metric, value and {@code name} tag are read, so files of any size are analyzed in constant memory.
+ * {@code http_req_duration} points go into one HdrHistogram per operation (microsecond resolution, three
+ * significant digits, up to {@value #MAX_LATENCY_MINUTES} minutes) and {@code http_req_failed} points into a
+ * failure count. The histograms keep {@code int} counts and only grow to the largest latency recorded, so
+ * specs with many operations stay small. Requests without a {@code name} tag are keyed by URL, as k6 does.
+ */
+@Service
+public class ResultsAnalyzer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResultsAnalyzer.class);
+    private static final int MAX_LATENCY_MINUTES = 10;
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(MAX_LATENCY_MINUTES);
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final String DURATION = "http_req_duration";
+    private static final String FAILED = "http_req_failed";
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    private final Path baselineDir;
+    private final RunReport.Tolerance tolerance;
+
+    /**
+     * A run, the baseline it was compared with and the regressions found.
+     *
+     * @param baseline {@code null} when no baseline was stored under the run's name
+     */
+    public record Analysis(String name, RunReport report, RunReport baseline, List<RunReport.Regression> regressions) {
+    }
+
+    private static final class Accumulator {
+        final IntCountsHistogram durations = new IntCountsHistogram(SIGNIFICANT_DIGITS);
+        long checked;
+        long failed;
+    }
+
+    /** The parts of one result line that are aggregated; reused for every line. */
+    private static final class Point {
+        String type;
+        String metric;
+        String name;
+        double value;
+        boolean hasValue;
+
+        void clear() {
+            type = null;
+            metric = null;
+            name = null;
+            hasValue = false;
+        }
+    }
+
+    @Autowired
+    public ResultsAnalyzer(@Value("${k6gen.results.baseline-dir:${user.home}/Documents/scripts/baselines}") Path baselineDir,
+                           @Value("${k6gen.results.latency-tolerance:0.1}") double latencyTolerance,
+                           @Value("${k6gen.results.latency-tolerance-ms:5}") double latencyToleranceMs,
+                           @Value("${k6gen.results.error-rate-tolerance:0.01}") double errorRateTolerance) {
+        this.baselineDir = baselineDir;
+        this.tolerance = new RunReport.Tolerance(latencyTolerance, latencyToleranceMs, errorRateTolerance);
+    }
+
+    /**
+     * Aggregates a k6 NDJSON result stream. A truncated last line, as left by an interrupted run, is ignored.
+     */
+    public RunReport analyze(InputStream in) throws IOException {
+        Map<String, Accumulator> operations = new HashMap<>();
+        Point point = new Point();
+        long lines = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                point.clear();
+                readLine(parser, point);
+                lines++;
+                if ("Point".equals(point.type) && tracked(point.metric) && point.name != null && point.hasValue) {
+                    record(operations.computeIfAbsent(point.name, name -> new Accumulator()), point);
+                }
+            }
+        } catch (JsonEOFException e) {
+            logger.warn("k6 results end in an incomplete line after {} lines; it is ignored", lines);
+        }
+
+        Map<String, RunReport.OperationStats> stats = new TreeMap<>();
+        operations.forEach((name, accumulator) -> stats.put(name, stats(accumulator)));
+        logger.info("Analyzed {} k6 result lines: {} operations", lines, stats.size());
+        return new RunReport(new TreeMap<>(stats));
+    }
+
+    /**
+     * Compares the run with the baseline stored under {@code name}, if any, and with {@code saveBaseline}
+     * makes the run the new baseline afterwards.
+     */
+    public Analysis compare(String name, RunReport report, boolean saveBaseline) throws IOException {
+        RunReport baseline = findBaseline(name).orElse(null);
+        List<RunReport.Regression> regressions = baseline == null ? List.of() : report.regressionsAgainst(baseline, tolerance);
+        if (!regressions.isEmpty()) {
+            logger.warn("Run '{}' regressed against its baseline: {}", name, regressions);
+        }
+        if (saveBaseline) {
+            saveBaseline(name, report);
+        }
+        return new Analysis(name, report, baseline, regressions);
+    }
+
+    public Optional<RunReport> findBaseline(String name) throws IOException {
+        Path file = baselineFile(name);
+        if (!Files.isRegularFile(file)) return Optional.empty();
+        return Optional.of(objectMapper.readValue(file.toFile(), RunReport.class));
+    }
+
+    /** Stores {@code report} as the baseline of {@code name}, replacing the previous one atomically. */
+    public void saveBaseline(String name, RunReport report) throws IOException {
+        Files.createDirectories(baselineDir);
+        Path file = baselineFile(name);
+        Path temp = Files.createTempFile(baselineDir, "baseline", ".tmp");
+        try {
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(), report);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        logger.info("Baseline of '{}' saved to: {}", name, file.toAbsolutePath());
+    }
+
+    private Path baselineFile(String name) {
+        return baselineDir.resolve(K6ScriptGeneratorService.scriptNameFor(name) + ".json");
+    }
+
+    /** Reads one result object, skipping everything but its type, metric, value and {@code name} tag. */
+    private static void readLine(JsonParser parser, Point point) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "type" -> point.type = parser.getText();
+                case "metric" -> point.metric = parser.getText();
+                case "data" -> {
+                    // Metric declarations and untracked metrics are skipped whole when their kind comes first
+                    if (value == JsonToken.START_OBJECT && !"Metric".equals(point.type)
+                            && (point.metric == null || tracked(point.metric))) {
+                        readData(parser, point);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readData(JsonParser parser, Point point) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("value".equals(field) && value.isNumeric()) {
+                point.value = parser.getDoubleValue();
+                point.hasValue = true;
+            } else if ("tags".equals(field) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    boolean name = "name".equals(parser.currentName());
+                    if (parser.nextToken() == JsonToken.VALUE_STRING && name) {
+                        point.name = parser.getText();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static boolean tracked(String metric) {
+        return DURATION.equals(metric) || FAILED.equals(metric);
+    }
+
+    private static void record(Accumulator accumulator, Point point) {
+        if (DURATION.equals(point.metric)) {
+            long micros = Math.round(point.value * 1000);
+            accumulator.durations.recordValue(Math.max(0, Math.min(micros, MAX_LATENCY_MICROS)));
+        } else if (FAILED.equals(point.metric)) {
+            accumulator.checked++;
+            if (point.value != 0) accumulator.failed++;
+        }
+    }
+
+    private static RunReport.OperationStats stats(Accumulator accumulator) {
+        IntCountsHistogram durations = accumulator.durations;
+        return new RunReport.OperationStats(
+                durations.getTotalCount(),
+                millis(durations.getValueAtPercentile(50)),
+                millis(durations.getValueAtPercentile(95)),
+                millis(durations.getValueAtPercentile(99)),
+                millis(durations.getMaxValue()),
+                accumulator.checked == 0 ? 0 : (double) accumulator.failed / accumulator.checked);
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
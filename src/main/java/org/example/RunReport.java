@@ -0,0 +1,78 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Latency and error rate of every operation of a k6 run, keyed by the {@code name} tag of its requests,
+ * which generated scripts set to the operation name. Built by {@link ResultsAnalyzer} from k6's JSON output,
+ * or read from the JSON summary a script writes with {@link GenerationOptions#isSummaryJson()}.
+ *
+ * @param operations statistics per operation name, in name order
+ */
+public record RunReport(SortedMap<String, OperationStats> operations) {
+
+    public RunReport {
+        operations = operations == null ? new TreeMap<>() : new TreeMap<>(operations);
+    }
+
+    /**
+     * @param requests  number of requests
+     * @param p50       median latency in milliseconds ({@code http_req_duration})
+     * @param p95       95th percentile latency in milliseconds
+     * @param p99       99th percentile latency in milliseconds
+     * @param max       highest latency in milliseconds
+     * @param errorRate share of failed requests ({@code http_req_failed}), from 0 to 1
+     */
+    public record OperationStats(long requests, double p50, double p95, double p99, double max, double errorRate) {
+    }
+
+    /**
+     * How much worse than its baseline an operation may get before it is a regression.
+     *
+     * @param latencyRatio relative p95/p99 increase allowed, e.g. {@code 0.1} for 10 %
+     * @param latencyMs    absolute p95/p99 increase in milliseconds always allowed, so that noise on fast
+     *                     operations is not reported
+     * @param errorRate    increase of the error rate allowed, e.g. {@code 0.01} for one percentage point
+     */
+    public record Tolerance(double latencyRatio, double latencyMs, double errorRate) {
+    }
+
+    /**
+     * One statistic of an operation that got worse than its baseline allows.
+     *
+     * @param metric {@code p95}, {@code p99} or {@code errorRate}
+     */
+    public record Regression(String operation, String metric, double baseline, double current) {
+    }
+
+    /**
+     * The regressions of this run against {@code baseline}. Only operations present in both runs are compared.
+     */
+    public List<Regression> regressionsAgainst(RunReport baseline, Tolerance tolerance) {
+        List<Regression> regressions = new ArrayList<>();
+        for (Map.Entry<String, OperationStats> entry : operations.entrySet()) {
+            OperationStats before = baseline.operations().get(entry.getKey());
+            if (before == null) continue;
+            OperationStats now = entry.getValue();
+            String operation = entry.getKey();
+            if (slower(before.p95(), now.p95(), tolerance)) {
+                regressions.add(new Regression(operation, "p95", before.p95(), now.p95()));
+            }
+            if (slower(before.p99(), now.p99(), tolerance)) {
+                regressions.add(new Regression(operation, "p99", before.p99(), now.p99()));
+            }
+            if (now.errorRate() - before.errorRate() > tolerance.errorRate()) {
+                regressions.add(new Regression(operation, "errorRate", before.errorRate(), now.errorRate()));
+            }
+        }
+        return regressions;
+    }
+
+    private static boolean slower(double before, double now, Tolerance tolerance) {
+        return now - before > tolerance.latencyMs() && now > before * (1 + tolerance.latencyRatio());
+    }
+}
@@ -0,0 +1,207 @@
+package org.example;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiles Swagger schemas into sample JSON bodies.
+ * Follows nested {@code $ref}s, arrays, nested objects and {@code allOf}/{@code oneOf}/{@code anyOf}.
+ * Every component schema is compiled once and its template is shared by all operations that use it.
+ * Recursive references are cut with {@code null}; templates that contain such a cut depend on where
+ * the recursion started, so they are expanded in place instead of being reused.
+ * At most {@value #MAX_SHARED_NESTING} shared templates are compiled inside one another; deeper
+ * references are expanded in place, which keeps the stack bounded on large reference graphs.
+ * Thread-safe: templates are cached in a concurrent map and always compile to the same text.
+ */
+public class SchemaResolver {
+
+    private static final String COMPONENT_PREFIX = "#/components/schemas/";
+    private static final int MAX_DEPTH = 8;
+    private static final int MAX_SHARED_NESTING = 64;
+
+    /** Compiled sample body; {@code selfContained} is false when a cycle or the depth limit cut it short. */
+    private record Template(String json, boolean selfContained) {
+    }
+
+    /** Refs expanded on the current path, and shared templates being compiled further up the call chain. */
+    private static final class Context {
+        final Deque<String> expanding = new ArrayDeque<>();
+        final Set<String> compilingShared;
+
+        Context(Set<String> compilingShared) {
+            this.compilingShared = compilingShared;
+        }
+    }
+
+    private final JsonNode components;
+    private final Map<String, Template> templates = new ConcurrentHashMap<>();
+
+    public SchemaResolver(JsonNode components) {
+        this.components = components;
+    }
+
+    public JsonNode getComponents() {
+        return components;
+    }
+
+    /**
+     * Builds a sample JSON value for the given schema.
+     * @param schema schema node, possibly a {@code $ref}
+     * @return JSON text of the sample value
+     */
+    public String sampleJson(JsonNode schema) {
+        return compile(schema, new Context(new HashSet<>()), 0).json();
+    }
+
+    /**
+     * Compiles every component schema in declaration order. Shared templates then no longer depend on
+     * which operation (or worker thread) reached them first.
+     */
+    public void compileAll() {
+        if (components == null) return;
+        components.fieldNames().forEachRemaining(name -> resolveRef(COMPONENT_PREFIX + name, new Context(new HashSet<>()), 0));
+    }
+
+    /** Number of component schemas compiled so far. */
+    public int compiledSchemaCount() {
+        return templates.size();
+    }
+
+    private Template compile(JsonNode schema, Context context, int depth) {
+        if (schema == null || schema.isMissingNode() || schema.isNull()) {
+            return new Template("{}", true);
+        }
+        if (schema.has("$ref")) {
+            return resolveRef(schema.get("$ref").asText(), context, depth);
+        }
+
+        JsonNode literal = literalValue(schema);
+        if (literal != null) {
+            return new Template(literal.toString(), true);
+        }
+        if (depth >= MAX_DEPTH) {
+            return new Template("null", false);
+        }
+
+        if (schema.has("allOf")) {
+            return compileAllOf(schema.get("allOf"), context, depth);
+        }
+        for (String keyword : List.of("oneOf", "anyOf")) {
+            JsonNode alternatives = schema.get(keyword);
+            if (alternatives != null && alternatives.isArray() && !alternatives.isEmpty()) {
+                return compile(alternatives.get(0), context, depth);
+            }
+        }
+
+        String type = schema.path("type").asText(schema.has("properties") ? "object" : "string");
+        return switch (type) {
+            case "object" -> compileObject(List.of(schema), context, depth);
+            case "array" -> {
+                Template item = compile(schema.get("items"), context, depth + 1);
+                yield new Template("[" + item.json() + "]", item.selfContained());
+            }
+            case "integer" -> new Template("123", true);
+            case "number" -> new Template("123.45", true);
+            case "boolean" -> new Template("true", true);
+            default -> new Template(sampleString(schema.path("format").asText()), true);
+        };
+    }
+
+    private Template resolveRef(String ref, Context context, int depth) {
+        String name = componentName(ref);
+        if (context.expanding.contains(name)) {
+            return new Template("null", false);
+        }
+
+        JsonNode target = components == null ? null : components.get(name);
+        Template shared = templates.get(name);
+        if (shared == null && context.compilingShared.size() < MAX_SHARED_NESTING && context.compilingShared.add(name)) {
+            // Compile from a fresh stack so the shared template never depends on the referring operation
+            try {
+                Context fresh = new Context(context.compilingShared);
+                fresh.expanding.push(name);
+                shared = compile(target, fresh, 0);
+            } finally {
+                context.compilingShared.remove(name);
+            }
+            templates.putIfAbsent(name, shared);
+        }
+        if (shared != null && (shared.selfContained() || context.expanding.isEmpty())) {
+            return shared;
+        }
+
+        context.expanding.push(name);
+        try {
+            return compile(target, context, depth + 1);
+        } finally {
+            context.expanding.pop();
+        }
+    }
+
+    private Template compileAllOf(JsonNode parts, Context context, int depth) {
+        List<JsonNode> objects = new ArrayList<>();
+        collectAllOf(parts, objects, new HashSet<>());
+        return compileObject(objects, context, depth);
+    }
+
+    /** Flattens allOf parts (following refs) into the list of schemas whose properties are merged. */
+    private void collectAllOf(JsonNode parts, List<JsonNode> objects, Set<String> visited) {
+        for (JsonNode part : parts) {
+            if (part.has("$ref")) {
+                String name = componentName(part.get("$ref").asText());
+                if (!visited.add(name) || components == null || !components.has(name)) continue;
+                part = components.get(name);
+            }
+            if (part.has("allOf")) {
+                collectAllOf(part.get("allOf"), objects, visited);
+            }
+            objects.add(part);
+        }
+    }
+
+    private Template compileObject(List<JsonNode> schemas, Context context, int depth) {
+        Map<String, JsonNode> properties = new LinkedHashMap<>();
+        for (JsonNode schema : schemas) {
+            JsonNode props = schema.get("properties");
+            if (props != null) {
+                props.fields().forEachRemaining(field -> properties.put(field.getKey(), field.getValue()));
+            }
+        }
+
+        StringBuilder json = new StringBuilder("{");
+        boolean selfContained = true;
+        for (Map.Entry<String, JsonNode> property : properties.entrySet()) {
+            Template value = compile(property.getValue(), context, depth + 1);
+            selfContained &= value.selfContained();
+            if (json.length() > 1) json.append(", ");
+            json.append(TextNode.valueOf(property.getKey())).append(": ").append(value.json());
+        }
+        return new Template(json.append("}").toString(), selfContained);
+    }
+
+    private static String componentName(String ref) {
+        return ref.startsWith(COMPONENT_PREFIX) ? ref.substring(COMPONENT_PREFIX.length()) : ref;
+    }
+
+    private static JsonNode literalValue(JsonNode schema) {
+        if (schema.has("example")) return schema.get("example");
+        if (schema.has("default")) return schema.get("default");
+        JsonNode enumNode = schema.get("enum");
+        if (enumNode != null && enumNode.isArray() && !enumNode.isEmpty()) return enumNode.get(0);
+        return null;
+    }
+
+    private static String sampleString(String format) {
+        return switch (format) {
+            case "date-time" -> "\"2024-01-01T00:00:00Z\"";
+            case "date" -> "\"2024-01-01\"";
+            case "uuid" -> "\"3fa85f64-5717-4562-b3fc-2c963f66afa6\"";
+            case "email" -> "\"user@example.com\"";
+            case "uri", "url" -> "\"https://example.com\"";
+            default -> "\"sample\"";
+        };
+    }
+}
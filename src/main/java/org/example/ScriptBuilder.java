@@ -1,63 +1,731 @@
 package org.example;
 
-import java.util.Map;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.regex.Pattern;
 
 /**
- * ScriptBuilder is responsible for assembling the final K6 script output.
- * Combines test groups using the "group()" function into a single default test function.
- * Assembles the final K6 script from grouped test blocks using group() calls only.
+ * Assembles the complete k6 script around the tag groups of a {@link GroupFunctionBuilder}: imports,
+ * constants, options, authentication, the test functions and {@code handleSummary}.
+ * Scripts are written straight to an {@link Appendable} as blocks are generated, either as one file or as
+ * ES modules per tag group (see {@link #writeModules}). Which parts are written follows the
+ * {@link GenerationOptions}.
  */
 public class ScriptBuilder {
 
+    private static final GroupFunctionBuilder.GroupFrame GROUP_FRAME = new GroupFunctionBuilder.GroupFrame() {
+        @Override
+        public void open(Appendable out, String tag) throws IOException {
+            String name = GroupFunctionBuilder.jsString(tag);
+            out.append("if (!TARGET_GROUP || TARGET_GROUP === ").append(name).append(") {\n")
+                    .append("    group(").append(name).append(", () => {\n")
+                    .append("        ");
+        }
+
+        @Override
+        public void close(Appendable out, String tag) throws IOException {
+            out.append("\n    });\n}\n\n");
+        }
+    };
+
+    /** Shared module of a modular script. */
+    public static final String LIB_MODULE = "lib.js";
+
+    /** Entry script of a modular script that runs every group. */
+    public static final String MAIN_ENTRY = "main.js";
+
+    private static final String GROUPS_DIR = "groups/";
+    private static final String ENTRIES_DIR = "entries/";
+
+    /** Declarations at the top level of generated helpers, which {@value #LIB_MODULE} exports. */
+    private static final Pattern TOP_LEVEL_DECLARATION = Pattern.compile("(?m)^(const|function) ");
+
+    private static final String DATA_DIR = "data";
+
+    private static final String LEGACY_OPTIONS = """
+            export const options = { vus: 1, duration: '3s' };
+
+            """;
+
+    private static final String DEFAULT_FUNCTION_START = """
+                export default function () {
+            """;
+
+    private static final String AUTHORIZED_FUNCTION_START = """
+                export default function (data) {
+                    authorize(data);
+            """;
+
+    private static final String DEFAULT_FUNCTION_END = """
+                }
+
+            """;
+
+    private final String dataDirectory;
+
+    /** Data files, if any, are expected in {@code ./data} next to the script. */
+    public ScriptBuilder() {
+        this("./" + DATA_DIR);
+    }
+
+    /** @param dataDirectory directory of the data files, relative to the single-file script */
+    public ScriptBuilder(String dataDirectory) {
+        this.dataDirectory = dataDirectory;
+    }
+
+    /** Assembles the script in memory; the same output as {@link #writeFullScript} gives with default options. */
+    public String buildFullScript(GroupFunctionBuilder groupBuilder, String baseUrl, String token, String company) {
+        return buildFullScript(groupBuilder.buildGroupedFunctions(), groupBuilder.describeGroups(), baseUrl, token, company);
+    }
+
+    /** Assembles the script from prebuilt group blocks, which carry no operation SLOs for thresholds. */
     public String buildFullScript(Map<String, StringBuilder> groupedBlocks, String baseUrl, String token, String company) {
+        return buildFullScript(groupedBlocks, Map.of(), baseUrl, token, company);
+    }
+
+    private String buildFullScript(Map<String, StringBuilder> groupedBlocks,
+                                   Map<String, List<GroupFunctionBuilder.OperationSummary>> groups,
+                                   String baseUrl, String token, String company) {
         StringBuilder script = new StringBuilder();
+        try {
+            writeImports(script, GenerationOptions.defaults());
+            writeOptions(script, GenerationOptions.defaults(), groups, Map.of(), false);
+            writeConstants(script, baseUrl, token, company);
+            script.append(DEFAULT_FUNCTION_START);
+            for (Map.Entry<String, StringBuilder> entry : groupedBlocks.entrySet()) {
+                GROUP_FRAME.open(script, entry.getKey());
+                script.append(entry.getValue());
+                GROUP_FRAME.close(script, entry.getKey());
+            }
+            script.append(DEFAULT_FUNCTION_END);
+            writeSummary(script, false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return script.toString();
+    }
+
+    /**
+     * Writes the full script to {@code out}, generating each group's endpoint blocks on the fly.
+     */
+    public void writeFullScript(Appendable out, GroupFunctionBuilder groupBuilder, String baseUrl, String token, String company) throws IOException {
+        GenerationOptions options = groupBuilder.getOptions();
+        AuthFlow auth = groupBuilder.getCompiledSpec().auth();
+        writeImports(out, options);
+        if (!options.usesScenarios()) {
+            writeOptions(out, options, groupBuilder.describeGroups(), Map.of(), false);
+            writeConstants(out, "const", baseUrl, token, company, auth);
+            writeAuth(out, auth);
+            if (options.isInstrumented()) writeMetrics(out, groupBuilder.describeGroups());
+            writeDataDeclarations(out, groupBuilder);
+            writeHoistedDeclarations(out, groupBuilder);
+            out.append(auth == null ? DEFAULT_FUNCTION_START : AUTHORIZED_FUNCTION_START);
+            groupBuilder.writeGroupedFunctions(out, GROUP_FRAME);
+            out.append(DEFAULT_FUNCTION_END);
+            writeSummary(out, options.isSummaryJson());
+            return;
+        }
+
+        Map<String, List<GroupFunctionBuilder.OperationSummary>> groups = groupBuilder.describeGroups();
+        Map<String, String> functions = groupFunctionNames(groups.keySet());
+        writeOptions(out, options, groups, functions, true);
+        writeConstants(out, "const", baseUrl, token, company, auth);
+        writeAuth(out, auth);
+        if (options.isInstrumented()) writeMetrics(out, groups);
+        writeDataDeclarations(out, groupBuilder);
+        writeHoistedDeclarations(out, groupBuilder);
+
+        groupBuilder.writeGroupedFunctions(out, exportedFrame(functions, auth != null));
+        writeDispatcher(out, functions, auth != null);
+        writeSummary(out, options.isSummaryJson());
+    }
+
+    /** Creates the files of a modular script, given their path relative to the script directory. */
+    @FunctionalInterface
+    public interface ModuleOutput {
+        Writer create(String path) throws IOException;
+    }
+
+    /**
+     * Writes the script as ES modules, closing every file it creates:
+     * <ul>
+     *   <li>{@value #LIB_MODULE} — configuration, headers, shared helpers and {@code handleSummary}</li>
+     *   <li>{@code groups/<function>.js} — one tag group as an exported function, with the metrics
+     *       and hoisted constants of its own operations</li>
+     *   <li>{@value #MAIN_ENTRY} — runs every group, like the single-file script</li>
+     *   <li>{@code entries/<function>.js} — runs one group and loads no other group's code</li>
+     *   <li>{@code data/<operation>.json} — test data rows, when enabled</li>
+     * </ul>
+     */
+    public void writeModules(ModuleOutput output, GroupFunctionBuilder groupBuilder, String baseUrl, String token, String company) throws IOException {
+        GenerationOptions options = groupBuilder.getOptions();
+        AuthFlow auth = groupBuilder.getCompiledSpec().auth();
+        Map<String, List<GroupFunctionBuilder.OperationSummary>> groups = groupBuilder.describeGroups();
+        Map<String, String> functions = groupFunctionNames(groups.keySet());
+
+        try (Writer lib = output.create(LIB_MODULE)) {
+            writeLibModule(lib, options, baseUrl, token, company, auth);
+        }
+        for (Map.Entry<String, String> function : functions.entrySet()) {
+            try (Writer module = output.create(GROUPS_DIR + function.getValue() + ".js")) {
+                writeGroupModule(module, groupBuilder, function.getKey(), function.getValue(),
+                        Map.of(function.getKey(), groups.get(function.getKey())));
+            }
+        }
+        try (Writer main = output.create(MAIN_ENTRY)) {
+            writeEntry(main, "./", options, groups, functions, true, auth != null);
+        }
+        for (Map.Entry<String, String> function : functions.entrySet()) {
+            try (Writer entry = output.create(ENTRIES_DIR + function.getValue() + ".js")) {
+                writeEntry(entry, "../", options, Map.of(function.getKey(), groups.get(function.getKey())),
+                        Map.of(function.getKey(), function.getValue()), false, auth != null);
+            }
+        }
+        writeDataFiles(output, groupBuilder, DATA_DIR + "/");
+    }
 
-        script.append("""
+    private void writeLibModule(Appendable out, GenerationOptions options, String baseUrl, String token, String company,
+                                AuthFlow auth) throws IOException {
+        if (auth != null) {
+            out.append("import http from 'k6/http';\n");
+        }
+        if (options.isHoisted()) {
+            out.append("import { check } from 'k6';\n");
+        }
+        if (options.getDataRows() > 0) {
+            out.append("import exec from 'k6/execution';\n");
+        }
+        out.append("import { textSummary } from 'https://jslib.k6.io/k6-summary/0.0.1/index.js';\n\n");
+        writeConstants(out, "export const", baseUrl, token, company, auth);
+        StringBuilder helpers = new StringBuilder();
+        writeAuth(helpers, auth);
+        if (options.getDataRows() > 0) writeDataRow(helpers, options);
+        if (options.isHoisted()) writeHelpers(helpers, options);
+        out.append(TOP_LEVEL_DECLARATION.matcher(helpers).replaceAll("export $1 "));
+        writeSummary(out, options.isSummaryJson());
+    }
+
+    private void writeGroupModule(Appendable out, GroupFunctionBuilder groupBuilder, String tag, String function,
+                                  Map<String, List<GroupFunctionBuilder.OperationSummary>> group) throws IOException {
+        GenerationOptions options = groupBuilder.getOptions();
+        out.append("""
             import http from 'k6/http';
             import { check, sleep, group } from 'k6';
-            import { textSummary } from 'https://jslib.k6.io/k6-summary/0.0.1/index.js';
+            """);
+        if (options.isInstrumented()) {
+            out.append("import { Trend, Rate } from 'k6/metrics';\n");
+        }
+        if (options.getDataRows() > 0) {
+            out.append("import { SharedArray } from 'k6/data';\n");
+        }
+        boolean authorized = groupBuilder.getCompiledSpec().auth() != null;
+        out.append("import { BASE_URL, COMPANY, HEADERS");
+        if (authorized) {
+            out.append(options.isHoisted() ? ", authorize" : ", authorize, noteUnauthorized");
+        }
+        if (options.getDataRows() > 0) {
+            out.append(", dataRow");
+        }
+        if (options.isHoisted()) {
+            out.append(", PARAMS, RESPONSE_CHECKS, ").append(options.isInstrumented() ? "checkOperation" : "checkEndpoint");
+        }
+        out.append(" } from '../").append(LIB_MODULE).append("';\n\n");
+        if (options.isInstrumented()) writeMetrics(out, group);
+        if (options.getDataRows() > 0) {
+            // open() resolves against this module, one level below the data directory
+            out.append("const DATA_DIR = '../").append(DATA_DIR).append("';\n\n");
+            groupBuilder.writeDataArrays(out, tag);
+        }
+        if (options.isHoisted()) groupBuilder.writeInitConstants(out, tag);
+        groupBuilder.writeGroupFunction(out, tag, exportedFrame(Map.of(tag, function), authorized));
+    }
 
-            export const options = { vus: 1, duration: '3s' };
+    /**
+     * Entry script importing only the given groups. Group functions are re-exported for scenario
+     * {@code exec}; groups without a load profile fall back to the single-VU smoke options.
+     */
+    private void writeEntry(Appendable out, String root, GenerationOptions options,
+                            Map<String, List<GroupFunctionBuilder.OperationSummary>> groups,
+                            Map<String, String> functions, boolean dispatch, boolean authorized) throws IOException {
+        if (dispatch) {
+            out.append("import { TARGET_GROUP } from '").append(root).append(LIB_MODULE).append("';\n");
+        }
+        for (String function : functions.values()) {
+            out.append("import { ").append(function).append(" } from '").append(root).append(GROUPS_DIR)
+                    .append(function).append(".js';\n");
+        }
+        out.append(authorized ? "export { handleSummary, setup } from '" : "export { handleSummary } from '")
+                .append(root).append(LIB_MODULE).append("';\n\n");
+
+        if (options.usesScenarios()) {
+            out.append("export { ").append(String.join(", ", functions.values())).append(" };\n\n");
+        }
+        writeOptions(out, options, groups, functions, options.usesScenarios());
+
+        if (dispatch) {
+            writeDispatcher(out, functions, authorized);
+        } else {
+            out.append(authorized ? "export default function (data) {\n" : "export default function () {\n");
+            for (String function : functions.values()) {
+                out.append("    ").append(function).append(authorized ? "(data);\n" : "();\n");
+            }
+            out.append("}\n");
+        }
+    }
+
+    /**
+     * Wraps each group in an exported function named after its tag, e.g. {@code group_pets}; with
+     * {@code authorized}, the function takes the setup data and authorizes the VU first.
+     */
+    private static GroupFunctionBuilder.GroupFrame exportedFrame(Map<String, String> functions, boolean authorized) {
+        return new GroupFunctionBuilder.GroupFrame() {
+            @Override
+            public void open(Appendable out, String tag) throws IOException {
+                out.append("export function ").append(functions.get(tag)).append(authorized ? "(data) {\n" : "() {\n");
+                if (authorized) out.append("    authorize(data);\n");
+                out.append("    group(").append(GroupFunctionBuilder.jsString(tag)).append(", () => {\n")
+                        .append("        ");
+            }
+
+            @Override
+            public void close(Appendable out, String tag) throws IOException {
+                out.append("\n    });\n}\n\n");
+            }
+        };
+    }
+
+    /** Default function running every group, or only {@code GROUP_NAME} when it is set. */
+    private static void writeDispatcher(Appendable out, Map<String, String> functions, boolean authorized) throws IOException {
+        out.append(authorized ? "export default function (data) {\n" : "export default function () {\n");
+        for (Map.Entry<String, String> function : functions.entrySet()) {
+            out.append("    if (!TARGET_GROUP || TARGET_GROUP === ").append(GroupFunctionBuilder.jsString(function.getKey()))
+                    .append(") ").append(function.getValue()).append(authorized ? "(data);\n" : "();\n");
+        }
+        out.append("}\n\n");
+    }
+
+    private void writeImports(Appendable out, GenerationOptions options) throws IOException {
+        out.append("""
+            import http from 'k6/http';
+            import { check, sleep, group } from 'k6';
+            """);
+        if (options.isInstrumented()) {
+            out.append("import { Trend, Rate } from 'k6/metrics';\n");
+        }
+        if (options.getDataRows() > 0) {
+            out.append("import { SharedArray } from 'k6/data';\n")
+                    .append("import exec from 'k6/execution';\n");
+        }
+        out.append("""
+            import { textSummary } from 'https://jslib.k6.io/k6-summary/0.0.1/index.js';
 
             """);
+    }
+
+    /**
+     * Declares the per-operation metrics in the init context: {@code <name>_duration} (time trend)
+     * and {@code <name>_errors} (rate of undocumented status codes).
+     */
+    private void writeMetrics(Appendable out, Map<String, List<GroupFunctionBuilder.OperationSummary>> groups) throws IOException {
+        StringBuilder js = new StringBuilder();
+        for (List<GroupFunctionBuilder.OperationSummary> operations : groups.values()) {
+            for (GroupFunctionBuilder.OperationSummary operation : operations) {
+                String metric = GroupFunctionBuilder.safeIdentifier(operation.name());
+                js.append("const duration_").append(operation.variable()).append(" = new Trend('")
+                        .append(metric).append("_duration', true);\n")
+                        .append("const errors_").append(operation.variable()).append(" = new Rate('")
+                        .append(metric).append("_errors');\n");
+            }
+        }
+        out.append(js.append('\n'));
+    }
+
+    /**
+     * Emits one scenario per tag group (see {@link GenerationOptions#profileFor}), or the single-VU smoke
+     * options without {@code scenarios}, plus latency thresholds: the global default on all requests and
+     * per-operation targets on their {@code name} tag. For the JSON summary, every operation also gets an
+     * empty threshold on its duration and failures, so k6 keeps them as submetrics, and the trend statistics
+     * include the request count and p99.
+     */
+    private void writeOptions(Appendable out, GenerationOptions options,
+                              Map<String, List<GroupFunctionBuilder.OperationSummary>> groups,
+                              Map<String, String> functions, boolean scenarios) throws IOException {
+        Map<String, List<String>> thresholds = new LinkedHashMap<>();
+        if (options.getDefaultLatencySloMs() != null) {
+            thresholds.put("http_req_duration", List.of("p(95)<" + options.getDefaultLatencySloMs()));
+        }
+        for (List<GroupFunctionBuilder.OperationSummary> operations : groups.values()) {
+            for (GroupFunctionBuilder.OperationSummary operation : operations) {
+                if (!operation.latencyThresholds().isEmpty()) {
+                    thresholds.put("http_req_duration{name:" + operation.name() + "}", operation.latencyThresholds());
+                }
+            }
+        }
+        if (options.isSummaryJson()) {
+            for (List<GroupFunctionBuilder.OperationSummary> operations : groups.values()) {
+                for (GroupFunctionBuilder.OperationSummary operation : operations) {
+                    thresholds.putIfAbsent("http_req_duration{name:" + operation.name() + "}", List.of());
+                    thresholds.putIfAbsent("http_req_failed{name:" + operation.name() + "}", List.of());
+                }
+            }
+        }
+        if (!scenarios && thresholds.isEmpty()) {
+            out.append(LEGACY_OPTIONS);
+            return;
+        }
+
+        StringBuilder js = new StringBuilder("export const options = {\n");
+        if (scenarios) {
+            js.append("    scenarios: {\n");
+            for (String tag : groups.keySet()) {
+                js.append("        ").append(GroupFunctionBuilder.jsString(tag)).append(": ");
+                options.profileFor(tag).appendScenario(js, functions.get(tag));
+                js.append(",\n");
+            }
+            js.append("    },\n");
+        } else {
+            js.append("    vus: 1,\n    duration: '3s',\n");
+        }
+        if (options.isSummaryJson()) {
+            js.append("    summaryTrendStats: ['avg', 'min', 'med', 'max', 'p(90)', 'p(95)', 'p(99)', 'count'],\n");
+        }
+        if (!thresholds.isEmpty()) {
+            js.append("    thresholds: {\n");
+            for (Map.Entry<String, List<String>> threshold : thresholds.entrySet()) {
+                js.append("        ").append(GroupFunctionBuilder.jsString(threshold.getKey())).append(": [");
+                List<String> expressions = threshold.getValue();
+                for (int i = 0; i < expressions.size(); i++) {
+                    if (i > 0) js.append(", ");
+                    js.append(GroupFunctionBuilder.jsString(expressions.get(i)));
+                }
+                js.append("],\n");
+            }
+            js.append("    },\n");
+        }
+        out.append(js.append("};\n\n"));
+    }
+
+    /** Data directory, row picker and SharedArrays of scripts with test data; nothing otherwise. */
+    private void writeDataDeclarations(Appendable out, GroupFunctionBuilder groupBuilder) throws IOException {
+        GenerationOptions options = groupBuilder.getOptions();
+        if (options.getDataRows() <= 0) return;
+        out.append("const DATA_DIR = ").append(GroupFunctionBuilder.jsString(dataDirectory)).append(";\n\n");
+        writeDataRow(out, options);
+        groupBuilder.writeDataArrays(out);
+    }
+
+    /**
+     * {@code dataRow(rows)} picks the row of the current request according to {@link GenerationOptions.DataSelection}:
+     * the iteration number within the current scenario, counted across its VUs, or the VU number.
+     */
+    private static void writeDataRow(Appendable out, GenerationOptions options) throws IOException {
+        String index = switch (options.getDataSelection()) {
+            case ITERATION -> "exec.scenario.iterationInTest";
+            case VU -> "exec.vu.idInTest - 1";
+        };
+        out.append("function dataRow(rows) {\n")
+                .append("    return rows[(").append(index).append(") % rows.length];\n")
+                .append("}\n\n");
+    }
+
+    /**
+     * Writes one {@code <operation>.json} file of test data rows per operation that has any; they are
+     * loaded from {@code DATA_DIR}.
+     */
+    public void writeDataFiles(ModuleOutput output, GroupFunctionBuilder groupBuilder) throws IOException {
+        writeDataFiles(output, groupBuilder, "");
+    }
+
+    private static void writeDataFiles(ModuleOutput output, GroupFunctionBuilder groupBuilder, String prefix) throws IOException {
+        for (CompiledSpec.TagGroup group : groupBuilder.getCompiledSpec().groups()) {
+            for (CompiledSpec.Operation ep : group.operations()) {
+                if (ep.data() == null) continue;
+                try (Writer file = output.create(prefix + ep.safeName() + ".json")) {
+                    file.append(ep.data().rowsJson());
+                }
+            }
+        }
+    }
+
+    /** Helpers and request constants of hoisted scripts; nothing otherwise. */
+    private void writeHoistedDeclarations(Appendable out, GroupFunctionBuilder groupBuilder) throws IOException {
+        GenerationOptions options = groupBuilder.getOptions();
+        if (!options.isHoisted()) return;
+        writeHelpers(out, options);
+        groupBuilder.writeInitConstants(out);
+    }
+
+    /**
+     * Shared params, response checks, the log helper for the configured {@link GenerationOptions.LogMode}
+     * and {@code checkEndpoint} (or {@code checkOperation} when instrumented). Status check objects are
+     * created once per label and status and reused by later iterations.
+     */
+    private void writeHelpers(Appendable out, GenerationOptions options) throws IOException {
+        out.append("""
+                const PARAMS = { headers: HEADERS };
+                const RESPONSE_CHECKS = {
+                    'response has body': r => r.body && r.body.length > 0,
+                    'content-type is JSON': r => r.headers['Content-Type'] && r.headers['Content-Type'].includes('application/json'),
+                    'response < 500ms': r => r.timings.duration < 500
+                };
+
+                """);
+
+        String line = "`[STATUS][status is ${res.status}][${label}] ${res.request.method} ${res.request.url} - got ${res.status}`";
+        out.append("function logResponse(res, allowed, label) {\n");
+        switch (options.getLogMode()) {
+            case ALL -> out.append("    console.log(").append(line).append(");\n");
+            case ERRORS -> out.append("    if (!allowed.includes(res.status)) console.warn(").append(line).append(");\n");
+            case SAMPLED -> out.append("    if (Math.random() * ").append(String.valueOf(Math.max(1, options.getLogSampleRate())))
+                    .append(" < 1) console.log(").append(line).append(");\n");
+            case OFF -> {
+            }
+        }
+        out.append("}\n\n");
+
+        // Setup authentication renews the VU's token after a 401
+        String unauthorized = options.getAuthMode() == GenerationOptions.AuthMode.SETUP ? "    noteUnauthorized(res);\n" : "";
+        if (options.isInstrumented()) {
+            out.append("function checkOperation(res, allowed, checks, tags, duration, errors) {\n").append(unauthorized)
+                    .append("""
+                        logResponse(res, allowed, tags.name);
+                        check(res, checks, tags);
+                        duration.add(res.timings.duration);
+                        errors.add(!allowed.includes(res.status));
+                    }
 
-        script.append(String.format("""
-            const BASE_URL = '%s';
-            const TOKEN = '%s';
-            const COMPANY = '%s';
+                    """);
+        } else {
+            out.append("const STATUS_CHECKS = {};\n\n")
+                    .append("function checkEndpoint(res, allowed, label) {\n").append(unauthorized)
+                    .append("""
+                        logResponse(res, allowed, label);
+                        const status = res.status;
+                        if (allowed.includes(status)) {
+                            const byStatus = STATUS_CHECKS[label] || (STATUS_CHECKS[label] = {});
+                            check(res, byStatus[status] || (byStatus[status] = { [`${label} status is ${status}`]: r => r.status === status }));
+                        }
+                        return check(res, RESPONSE_CHECKS);
+                    }
 
-            const HEADERS = {
-                'Authorization': `Bearer ${TOKEN}`,
-                'Content-Type': 'application/json'
-            };
+                    """);
+        }
+    }
+
+    /** Maps every tag to a unique JS function name such as {@code group_pets}. */
+    private static Map<String, String> groupFunctionNames(Collection<String> tags) {
+        Map<String, String> functions = new LinkedHashMap<>();
+        Set<String> used = new HashSet<>();
+        for (String tag : tags) {
+            String base = "group_" + GroupFunctionBuilder.safeIdentifier(tag);
+            String name = base;
+            for (int i = 2; !used.add(name); i++) {
+                name = base + "_" + i;
+            }
+            functions.put(tag, name);
+        }
+        return functions;
+    }
+
+    private void writeConstants(Appendable out, String baseUrl, String token, String company) throws IOException {
+        writeConstants(out, "const", baseUrl, token, company, null);
+    }
+
+    /**
+     * Values are written as escaped string literals, since they come from the spec and the caller.
+     * With an {@link AuthFlow}, the credentials header is left to {@code authorize()}.
+     */
+    private void writeConstants(Appendable out, String declaration, String baseUrl, String token, String company,
+                                AuthFlow auth) throws IOException {
+        if (auth == null) {
+            out.append("""
+                    %1$s BASE_URL = %2$s;
+                    %1$s TOKEN = %3$s;
+                    %1$s COMPANY = %4$s;
+
+                    %1$s HEADERS = {
+                        'Authorization': `Bearer ${TOKEN}`,
+                        'Content-Type': 'application/json'
+                    };
+
+                    %1$s TARGET_GROUP = __ENV.GROUP_NAME;
+
+                """.formatted(declaration, jsString(baseUrl), jsString(token), jsString(company)));
+            return;
+        }
+        out.append("""
+                %1$s BASE_URL = %2$s;
+                %1$s TOKEN = __ENV.TOKEN || %3$s;
+                %1$s COMPANY = %4$s;
+
+                %1$s HEADERS = {
+                    'Content-Type': 'application/json'
+                };
+
+                %1$s TARGET_GROUP = __ENV.GROUP_NAME;
+
+            """.formatted(declaration, jsString(baseUrl), jsString(token), jsString(company)));
+    }
+
+    /** Single-quoted JS string literal; {@code null} is written as {@code 'null'}. */
+    private static String jsString(String value) {
+        return GroupFunctionBuilder.jsString(String.valueOf(value));
+    }
+
+    /**
+     * Token lifecycle of setup authentication: {@code setup()} acquires credentials once and passes them to
+     * every VU as setup data. {@code authorize(data)} runs at the start of each iteration and puts the VU's
+     * credentials into {@code HEADERS}, acquiring new ones only once they expired or a request got
+     * {@code 401} (reported through {@code noteUnauthorized(res)}). Nothing is written without a flow.
+     */
+    private static void writeAuth(Appendable out, AuthFlow auth) throws IOException {
+        if (auth == null) return;
+        StringBuilder js = new StringBuilder();
+        String header = switch (auth) {
+            case AuthFlow.ApiKey apiKey -> "header".equals(apiKey.in()) ? apiKey.name() : "Cookie";
+            default -> "Authorization";
+        };
+        js.append("const AUTH_HEADER = ").append(GroupFunctionBuilder.jsString(header)).append(";\n");
+        switch (auth) {
+            case AuthFlow.ClientCredentials flow -> {
+                String tokenUrl = flow.tokenUrl().startsWith("/")
+                        ? "BASE_URL + " + jsString(flow.tokenUrl()) : jsString(flow.tokenUrl());
+                js.append("const TOKEN_URL = __ENV.TOKEN_URL || ").append(tokenUrl).append(";\n")
+                        .append("const TOKEN_REFRESH_MARGIN_S = 30;\n\n");
+            }
+            case AuthFlow.Login login -> js.append("const TOKEN_REFRESH_MARGIN_S = 30;\n\n");
+            default -> js.append('\n');
+        }
+
+        js.append("""
+                // Credentials are acquired once per test and handed to every VU as setup data
+                export function setup() {
+                    return { auth: acquireToken() };
+                }
+
+                """);
+        switch (auth) {
+            case AuthFlow.ClientCredentials flow -> {
+                js.append("""
+                        function acquireToken() {
+                            const res = http.post(TOKEN_URL, {
+                                grant_type: 'client_credentials',
+                                client_id: __ENV.CLIENT_ID || '',
+                                client_secret: __ENV.CLIENT_SECRET || '',
+                        """);
+                if (!flow.scope().isEmpty()) {
+                    js.append("        scope: ").append(GroupFunctionBuilder.jsString(flow.scope())).append(",\n");
+                }
+                js.append("""
+                            }, { tags: { name: 'auth' } });
+                            return tokenFrom(res);
+                        }
 
-            const TARGET_GROUP = __ENV.GROUP_NAME;
+                        """);
+            }
+            case AuthFlow.Login login -> js.append("function acquireToken() {\n")
+                    .append("    const res = http.request(").append(jsString(login.method().toUpperCase()))
+                    .append(", BASE_URL + ").append(jsString(login.path())).append(",\n")
+                    .append("        __ENV.LOGIN_BODY || ")
+                    .append(login.bodyJson() == null ? "null" : "JSON.stringify(" + login.bodyJson() + ")").append(",\n")
+                    .append("        { headers: { 'Content-Type': 'application/json' }, tags: { name: 'auth' } });\n")
+                    .append("    return tokenFrom(res);\n")
+                    .append("}\n\n");
+            case AuthFlow.ApiKey apiKey -> js.append("function acquireToken() {\n")
+                    .append("    return { header: ")
+                    .append("header".equals(apiKey.in()) ? "" : GroupFunctionBuilder.jsString(apiKey.name() + "=") + " + ")
+                    .append("(__ENV.API_KEY || TOKEN), expiresAt: 0 };\n")
+                    .append("}\n\n");
+            case AuthFlow.Bearer bearer -> js.append("""
+                    function acquireToken() {
+                        return { header: `Bearer ${TOKEN}`, expiresAt: 0 };
+                    }
+
+                    """);
+        }
+        if (auth instanceof AuthFlow.ClientCredentials || auth instanceof AuthFlow.Login) {
+            js.append("""
+                    function tokenFrom(res) {
+                        if (res.status < 200 || res.status >= 300) {
+                            throw new Error(`Token request failed: ${res.request.method} ${res.request.url} - got ${res.status}`);
+                        }
+                        const body = res.json();
+                        const token = body.access_token || body.accessToken || body.token;
+                        if (!token) throw new Error('Token response has no access_token');
+                        const expiresIn = Number(body.expires_in);
+                        return {
+                            header: `Bearer ${token}`,
+                            expiresAt: expiresIn > 0 ? Date.now() + Math.max(1, expiresIn - TOKEN_REFRESH_MARGIN_S) * 1000 : 0,
+                        };
+                    }
+
+                    """);
+        }
 
-            export default function () {
-        """, baseUrl, token, company));
+        js.append("""
+                // This VU's credentials: the shared ones until they expire or are rejected, then its own
+                let auth = null;
 
-        for (Map.Entry<String, StringBuilder> entry : groupedBlocks.entrySet()) {
-            String tag = entry.getKey();
-            script.append(String.format("""
-                if (!TARGET_GROUP || TARGET_GROUP === '%s') {
-                    group('%s', () => {
-                        %s
-                    });
+                function authorize(data) {
+                    if (auth === null) auth = data.auth;
+                    if (auth.stale || (auth.expiresAt && Date.now() >= auth.expiresAt)) auth = acquireToken();
+                    HEADERS[AUTH_HEADER] = auth.header;
                 }
 
-                """, tag, tag, entry.getValue().toString()));
+                function noteUnauthorized(res) {
+                    if (res.status === 401) auth.stale = true;
+                }
+
+                """);
+        out.append(js);
+    }
+
+    /**
+     * {@code handleSummary} printing k6's text summary; with {@code json}, it also writes each operation's
+     * request count, latency percentiles (ms) and error rate from the submetrics declared by {@link #writeOptions}.
+     */
+    private void writeSummary(Appendable out, boolean json) throws IOException {
+        if (!json) {
+            out.append("""
+                export function handleSummary(data) {
+                    return {
+                        'stdout': textSummary(data, { indent: ' ', enableColors: true }),
+                    };
+                }
+            """);
+            return;
         }
+        out.append("""
+            const SUMMARY_JSON = __ENV.SUMMARY_JSON || 'summary.json';
 
-        script.append("""
+            // Latency and error rate per operation, keyed by the name tag of its requests
+            function operationSummary(data) {
+                const operations = {};
+                for (const [key, metric] of Object.entries(data.metrics)) {
+                    const match = /^http_req_(duration|failed)\\{name:(.*)\\}$/.exec(key);
+                    if (!match) continue;
+                    const operation = operations[match[2]] || (operations[match[2]] = { requests: 0, errorRate: 0 });
+                    if (match[1] === 'duration') {
+                        operation.requests = metric.values.count;
+                        operation.p50 = metric.values.med;
+                        operation.p95 = metric.values['p(95)'];
+                        operation.p99 = metric.values['p(99)'];
+                        operation.max = metric.values.max;
+                    } else {
+                        operation.errorRate = metric.values.rate;
+                    }
+                }
+                return { operations };
             }
 
             export function handleSummary(data) {
                 return {
                     'stdout': textSummary(data, { indent: ' ', enableColors: true }),
+                    [SUMMARY_JSON]: JSON.stringify(operationSummary(data), null, 2),
                 };
             }
-        """);
-
-        return script.toString();
+            """);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,134 @@
+package org.example;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Local content-addressed cache of fetched specs.
+ * For every source URL it remembers the {@code ETag}/{@code Last-Modified} validators and the hash of
+ * the downloaded content. The parsed (already filtered) spec is stored once per content hash, on disk
+ * and in a small in-memory LRU, so a {@code 304 Not Modified} answer needs neither a download nor a parse.
+ * Specs parsed with different retention settings are stored as separate variants of the same content.
+ * Cached trees are shared between callers and must not be modified.
+ */
+public class SpecCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpecCache.class);
+    private static final int MEMORY_ENTRIES = 8;
+    /**
+     * Version of the parsed trees, i.e. of what {@link SpecStreamReader} retains. Bump it whenever the reader
+     * keeps or drops different parts of a spec, so trees parsed by an older reader are parsed again instead of reused.
+     */
+    private static final int PARSED_SPEC_VERSION = 3;
+
+    /** Validators and content address recorded for one source URL. */
+    public record Entry(String etag, String lastModified, String contentHash) {
+    }
+
+    private final Path directory;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, JsonNode> parsed = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, JsonNode> eldest) {
+            return size() > MEMORY_ENTRIES;
+        }
+    };
+
+    public SpecCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the validators recorded for {@code url}, or {@code null} if it was never fetched or
+     * its content was not stored in the given variant.
+     */
+    public synchronized Entry lookup(String url, String variant) {
+        Path meta = metaFile(url);
+        if (!Files.isRegularFile(meta)) return null;
+        try {
+            JsonNode node = objectMapper.readTree(meta.toFile());
+            Entry entry = new Entry(textOrNull(node, "etag"), textOrNull(node, "lastModified"), node.path("contentHash").asText());
+            return Files.isRegularFile(blobFile(entry.contentHash(), variant)) ? entry : null;
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable spec cache entry for {}: {}", url, e.getMessage());
+            return null;
+        }
+    }
+
+    /** Returns the parsed spec stored under {@code contentHash}, reading it from disk if it is not in memory. */
+    public synchronized JsonNode load(String contentHash, String variant) throws IOException {
+        String key = contentHash + variant;
+        JsonNode spec = parsed.get(key);
+        if (spec == null) {
+            spec = objectMapper.readTree(blobFile(contentHash, variant).toFile());
+            parsed.put(key, spec);
+        }
+        return spec;
+    }
+
+    /** Records a freshly downloaded spec, parsed in the given variant, together with its validators. */
+    public synchronized void store(String url, Entry entry, String variant, JsonNode spec) throws IOException {
+        Path blob = blobFile(entry.contentHash(), variant);
+        if (!Files.isRegularFile(blob)) {
+            writeAtomically(blob, objectMapper.writeValueAsBytes(spec));
+        }
+        ObjectNode meta = objectMapper.createObjectNode();
+        meta.put("url", url);
+        meta.put("etag", entry.etag());
+        meta.put("lastModified", entry.lastModified());
+        meta.put("contentHash", entry.contentHash());
+        writeAtomically(metaFile(url), objectMapper.writeValueAsBytes(meta));
+        parsed.put(entry.contentHash() + variant, spec);
+    }
+
+    private void writeAtomically(Path target, byte[] content) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        Files.write(temp, content);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path metaFile(String url) {
+        return directory.resolve("sources").resolve(sha256Hex(url) + ".json");
+    }
+
+    /** Variant under which specs parsed with the given retention settings are stored. */
+    static String variant(boolean retainExamples) {
+        return "-r" + PARSED_SPEC_VERSION + (retainExamples ? "-examples" : "");
+    }
+
+    private Path blobFile(String contentHash, String variant) {
+        return directory.resolve("blobs").resolve(contentHash + variant + ".json");
+    }
+
+    private static String textOrNull(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    static String sha256Hex(String value) {
+        return HexFormat.of().formatHex(newDigest().digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package org.example;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Compiles a parsed spec into a {@link CompiledSpec}.
+ * This is the only phase that reads the Jackson tree: parameters are merged and sampled, status codes
+ * collected, request bodies resolved through a shared {@link SchemaResolver} and, with a
+ * {@link GenerationCache}, fingerprints computed; with data rows enabled, test data is generated per
+ * operation, and with setup authentication the {@link AuthFlow} is chosen. Large specs are compiled on a fork-join pool;
+ * the result does not depend on the number of workers.
+ */
+public class SpecCompiler {
+
+    private static final Set<String> HTTP_METHODS = Set.of("get", "put", "post", "delete", "options", "head", "patch", "trace");
+
+    private final JsonNode paths;
+    private final GenerationOptions options;
+    private final GenerationCache cache;
+    private final RequestBodyBuilder requestBodyBuilder;
+    private final ParameterResolver parameterResolver;
+    private final OperationFingerprinter fingerprinter;
+    private final TestDataGenerator dataGenerator;
+    private final Map<String, String> strings = new ConcurrentHashMap<>();
+    private JsonNode securitySchemes = JsonNodeFactory.instance.missingNode();
+    private JsonNode security = JsonNodeFactory.instance.missingNode();
+    private final LongAdder bodyBuildNanos = new LongAdder();
+
+    /**
+     * @param paths               the spec's {@code paths}
+     * @param schemas             {@code components.schemas}
+     * @param parameterComponents {@code components.parameters}, or {@code null}
+     * @param options             generation options (parallelism and batch mode are used)
+     * @param cache               generation cache; enables fingerprints, or {@code null}
+     */
+    public SpecCompiler(JsonNode paths, JsonNode schemas, JsonNode parameterComponents,
+                        GenerationOptions options, GenerationCache cache) {
+        this.paths = paths;
+        this.options = options;
+        this.cache = cache;
+        this.requestBodyBuilder = new RequestBodyBuilder(schemas);
+        this.parameterResolver = new ParameterResolver(parameterComponents);
+        this.fingerprinter = cache != null ? new OperationFingerprinter(schemas) : null;
+        this.dataGenerator = options.getDataRows() > 0 ? new TestDataGenerator(schemas) : null;
+    }
+
+    /**
+     * Compiles a whole parsed spec, wiring {@code components.schemas} and {@code components.parameters}.
+     */
+    public static CompiledSpec compile(JsonNode root, GenerationOptions options, GenerationCache cache) {
+        JsonNode components = root.path("components");
+        return new SpecCompiler(root.path("paths"), components.path("schemas"), components.path("parameters"), options, cache)
+                .useSecurity(components.path("securitySchemes"), root.path("security"))
+                .compile();
+    }
+
+    /**
+     * Sets the spec's {@code components.securitySchemes} and top-level {@code security} requirements,
+     * from which {@link GenerationOptions.AuthMode#SETUP} picks its {@link AuthFlow}.
+     */
+    public SpecCompiler useSecurity(JsonNode securitySchemes, JsonNode security) {
+        this.securitySchemes = securitySchemes;
+        this.security = security;
+        return this;
+    }
+
+    private record Source(String tag, String path, PathTemplate template, String method, String safeName,
+                          JsonNode details, JsonNode pathParameters) {
+    }
+
+    public CompiledSpec compile() {
+        List<Source> sources = new ArrayList<>();
+        Set<String> safeNames = new HashSet<>();
+        paths.fields().forEachRemaining(entry -> {
+            String path = entry.getKey();
+            JsonNode methods = entry.getValue();
+            PathTemplate template = PathTemplate.compile(path);
+            JsonNode pathParameters = methods.get("parameters");
+            methods.fields().forEachRemaining(methodEntry -> {
+                String method = methodEntry.getKey();
+                if (!HTTP_METHODS.contains(method)) return;
+                JsonNode details = methodEntry.getValue();
+                String tag = "general";
+                JsonNode tags = details.get("tags");
+                if (tags != null && tags.isArray() && tags.size() > 0) {
+                    tag = tags.get(0).asText();
+                }
+                sources.add(new Source(intern(tag), path, template, intern(method), uniqueSafeName(method, path, safeNames),
+                        details, pathParameters));
+            });
+        });
+
+        if (!sources.isEmpty()) {
+            requestBodyBuilder.getSchemaResolver().compileAll();
+        }
+        CompiledSpec.Operation[] operations = new CompiledSpec.Operation[sources.size()];
+        if (options.getParallelism() > 1 && sources.size() >= options.getParallelThreshold()) {
+            ForkJoinPool pool = WorkerPools.forParallelism(options.getParallelism());
+            try {
+                pool.submit(() -> IntStream.range(0, operations.length).parallel()
+                        .forEach(i -> operations[i] = compile(sources.get(i)))).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Spec compilation was interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Spec compilation failed", e.getCause());
+            }
+        } else {
+            for (int i = 0; i < operations.length; i++) {
+                operations[i] = compile(sources.get(i));
+            }
+        }
+
+        // Group by tag, keeping the order in which tags and operations first appear
+        Map<String, List<CompiledSpec.Operation>> grouped = new LinkedHashMap<>();
+        for (CompiledSpec.Operation operation : operations) {
+            grouped.computeIfAbsent(operation.tag(), k -> new ArrayList<>()).add(operation);
+        }
+        List<CompiledSpec.TagGroup> groups = new ArrayList<>(grouped.size());
+        grouped.forEach((tag, ops) -> groups.add(new CompiledSpec.TagGroup(tag, List.copyOf(ops))));
+        AuthFlow auth = options.getAuthMode() == GenerationOptions.AuthMode.SETUP ? authFlow(sources, operations) : null;
+        return new CompiledSpec(List.copyOf(groups), requestBodyBuilder.getSchemaResolver().compiledSchemaCount(),
+                Duration.ofNanos(bodyBuildNanos.sum()), auth);
+    }
+
+    /**
+     * The configured login operation, else the first usable security scheme: those of the top-level
+     * {@code security} requirements first, then the others in declaration order. Client-credentials
+     * OAuth2 flows, header and cookie API keys and bearer schemes are usable; without any, the
+     * generator's bearer token is used.
+     */
+    private AuthFlow authFlow(List<Source> sources, CompiledSpec.Operation[] operations) {
+        String login = options.getLoginOperation();
+        if (login != null && !login.isBlank()) {
+            for (int i = 0; i < operations.length; i++) {
+                CompiledSpec.Operation op = operations[i];
+                if (!op.name().equals(login)) continue;
+                JsonNode requestBody = sources.get(i).details().get("requestBody");
+                Map<String, String> values = new HashMap<>();
+                for (CompiledSpec.Parameter param : op.parameters()) {
+                    if ("path".equals(param.in())) values.putIfAbsent(param.name(), PathTemplate.encodePathSegment(param.value()));
+                }
+                String path = op.template().expand(name -> "company".equals(name) ? "${COMPANY}" : values.get(name));
+                return new AuthFlow.Login(op.method(), path,
+                        requestBody == null ? null : requestBodyBuilder.buildBodyJson(requestBody));
+            }
+            throw new IllegalArgumentException("Login operation not found in spec: " + login);
+        }
+
+        Map<String, List<String>> required = new LinkedHashMap<>();
+        for (JsonNode requirement : security) {
+            requirement.fields().forEachRemaining(scheme -> {
+                List<String> scopes = new ArrayList<>();
+                scheme.getValue().forEach(scope -> scopes.add(scope.asText()));
+                required.putIfAbsent(scheme.getKey(), scopes);
+            });
+        }
+        Set<String> names = new LinkedHashSet<>(required.keySet());
+        securitySchemes.fieldNames().forEachRemaining(names::add);
+        for (String name : names) {
+            JsonNode scheme = securitySchemes.path(name);
+            switch (scheme.path("type").asText()) {
+                case "oauth2" -> {
+                    JsonNode flow = scheme.path("flows").path("clientCredentials");
+                    if (flow.hasNonNull("tokenUrl")) {
+                        return new AuthFlow.ClientCredentials(flow.get("tokenUrl").asText(),
+                                String.join(" ", required.getOrDefault(name, List.of())));
+                    }
+                }
+                case "apiKey" -> {
+                    String in = scheme.path("in").asText();
+                    if (("header".equals(in) || "cookie".equals(in)) && scheme.hasNonNull("name")) {
+                        return new AuthFlow.ApiKey(scheme.get("name").asText(), in);
+                    }
+                }
+                case "http" -> {
+                    if ("bearer".equalsIgnoreCase(scheme.path("scheme").asText())) return new AuthFlow.Bearer();
+                }
+                default -> {
+                }
+            }
+        }
+        return new AuthFlow.Bearer();
+    }
+
+    /**
+     * JS identifier suffix of an operation, e.g. {@code GET__pets}. Paths that only differ in characters that
+     * are not valid in identifiers ({@code /a-b}, {@code /a_b}) get a numeric suffix in spec order.
+     */
+    private static String uniqueSafeName(String method, String path, Set<String> used) {
+        String base = method.toUpperCase() + "_" + GroupFunctionBuilder.safeIdentifier(path);
+        String name = base;
+        for (int i = 2; !used.add(name); i++) {
+            name = base + "_" + i;
+        }
+        return name;
+    }
+
+    private CompiledSpec.Operation compile(Source source) {
+        JsonNode details = source.details();
+        List<JsonNode> parameterNodes = parameterResolver.resolve(source.pathParameters(), details.get("parameters"));
+        List<CompiledSpec.Parameter> parameters = new ArrayList<>(parameterNodes.size());
+        for (JsonNode param : parameterNodes) {
+            parameters.add(new CompiledSpec.Parameter(intern(param.path("in").asText()), intern(param.get("name").asText()),
+                    intern(ParameterResolver.sampleValue(param))));
+        }
+
+        String fingerprint = fingerprinter == null ? null
+                : fingerprinter.fingerprint(source.path(), source.method(), source.safeName(), details, parameterNodes);
+
+        // An unbatched operation whose block is cached is never regenerated, so its body is not needed
+        // (unless bodies are hoisted into init-context constants, which are always written)
+        boolean hasRequestBody = details.has("requestBody");
+        String bodyJson = null;
+        boolean served = fingerprint != null && !options.isHoisted() && !options.getBatchMode().includes(source.method())
+                && cache.contains(fingerprint);
+        if (hasRequestBody && !served) {
+            long start = System.nanoTime();
+            bodyJson = requestBodyBuilder.buildBodyJson(details.get("requestBody"));
+            bodyBuildNanos.add(System.nanoTime() - start);
+        }
+
+        List<String> statusCodes = new ArrayList<>();
+        JsonNode responses = details.get("responses");
+        if (responses != null) {
+            Iterator<String> fieldNames = responses.fieldNames();
+            while (fieldNames.hasNext()) {
+                String code = fieldNames.next();
+                if (GroupFunctionBuilder.isStatusCode(code) && !statusCodes.contains(code)) {
+                    statusCodes.add(intern(code));
+                }
+            }
+        }
+        if (statusCodes.isEmpty()) statusCodes.add(intern("200")); // default fallback
+
+        String safeName = source.safeName();
+        return new CompiledSpec.Operation(source.tag(), source.path(), source.method(), operationName(details, safeName),
+                safeName, source.template(), List.copyOf(parameters), hasRequestBody, bodyJson, List.copyOf(statusCodes),
+                latencyThresholds(details.get("x-latency-slo")), fingerprint,
+                dataGenerator == null ? null : dataSet(source, parameterNodes));
+    }
+
+    /**
+     * Generates {@code dataRows} rows of path and query parameters and request body for one operation.
+     * The random stream is derived from the seed and the operation alone, so rows do not depend on
+     * the order or the thread in which operations are compiled.
+     */
+    private CompiledSpec.DataSet dataSet(Source source, List<JsonNode> parameterNodes) {
+        List<String> keys = new ArrayList<>();
+        List<JsonNode> sources = new ArrayList<>();
+        for (JsonNode param : parameterNodes) {
+            String in = param.path("in").asText();
+            String name = param.get("name").asText();
+            if (("path".equals(in) && !"company".equals(name)) || "query".equals(in)) {
+                keys.add(in + ":" + name);
+                sources.add(param);
+            }
+        }
+        JsonNode requestBody = source.details().get("requestBody");
+        if (requestBody != null && !"get".equals(source.method())) {
+            keys.add(CompiledSpec.DataSet.BODY);
+            sources.add(requestBody);
+        }
+        if (keys.isEmpty()) return null;
+
+        SplittableRandom random = new SplittableRandom(
+                options.getDataSeed() * 0x9E3779B97F4A7C15L + (source.method() + " " + source.path()).hashCode());
+        String[][] rows = new String[options.getDataRows()][keys.size()];
+        for (String[] row : rows) {
+            for (int c = 0; c < keys.size(); c++) {
+                row[c] = dataValue(keys.get(c), sources.get(c), random);
+            }
+        }
+
+        List<Integer> varying = new ArrayList<>();
+        for (int c = 0; c < keys.size(); c++) {
+            for (String[] row : rows) {
+                if (!row[c].equals(rows[0][c])) {
+                    varying.add(c);
+                    break;
+                }
+            }
+        }
+        if (varying.isEmpty()) return null;
+
+        ArrayNode json = JsonNodeFactory.instance.arrayNode(rows.length);
+        for (String[] row : rows) {
+            ArrayNode values = json.addArray();
+            for (int c : varying) values.add(row[c]);
+        }
+        List<String> columns = new ArrayList<>(varying.size());
+        for (int c : varying) columns.add(intern(keys.get(c)));
+        return new CompiledSpec.DataSet(List.copyOf(columns), json.toString());
+    }
+
+    private String dataValue(String key, JsonNode source, SplittableRandom random) {
+        if (CompiledSpec.DataSet.BODY.equals(key)) {
+            return dataGenerator.bodyValue(source, random).toString();
+        }
+        JsonNode value = dataGenerator.parameterValue(source, random);
+        String text = value.isTextual() ? value.asText() : value.toString();
+        return key.startsWith("path:") ? PathTemplate.encodePathSegment(text) : PathTemplate.encodeQueryComponent(text);
+    }
+
+    /** Stable request name: the operationId, or METHOD_path when the spec has none. */
+    private static String operationName(JsonNode details, String safeName) {
+        JsonNode operationId = details.get("operationId");
+        if (operationId != null && !operationId.asText().isBlank()) return operationId.asText();
+        return safeName;
+    }
+
+    /**
+     * Converts an {@code x-latency-slo} value into k6 threshold expressions: a number is a p95 target
+     * in milliseconds, a string is used as the expression, and an object maps percentiles to
+     * milliseconds (e.g. {@code {"p95": 300, "p99": 800}}).
+     */
+    private static List<String> latencyThresholds(JsonNode slo) {
+        if (slo == null || slo.isNull()) return List.of();
+        if (slo.isNumber()) return List.of("p(95)<" + slo.asText());
+        if (slo.isTextual()) {
+            String text = slo.asText().trim();
+            return List.of(GroupFunctionBuilder.isStatusCode(text) ? "p(95)<" + text : text);
+        }
+        List<String> thresholds = new ArrayList<>();
+        slo.fields().forEachRemaining(field -> {
+            String key = field.getKey();
+            String aggregate = key.startsWith("p") && GroupFunctionBuilder.isStatusCode(key.substring(1))
+                    ? "p(" + key.substring(1) + ")" : key;
+            thresholds.add(aggregate + "<" + field.getValue().asText());
+        });
+        return List.copyOf(thresholds);
+    }
+
+    /** Returns one shared instance per distinct string value in this spec. */
+    private String intern(String value) {
+        String existing = strings.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+}
@@ -0,0 +1,68 @@
+package org.example;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Checks the spec sources named by HTTP clients, so that they cannot make the server read arbitrary files.
+ * HTTP(S) URLs are always accepted; local paths and {@code file:} URIs only when they lie inside the
+ * {@code k6gen.specs.dir} directory, against which relative paths are resolved. Without that directory,
+ * local specs are rejected.
+ */
+@Component
+public class SpecSources {
+
+    private final Path specDir;
+
+    @Autowired
+    public SpecSources(@Value("${k6gen.specs.dir:}") String specDir) {
+        this(specDir.isBlank() ? null : Path.of(specDir));
+    }
+
+    /** @param specDir directory of the local specs clients may use, or {@code null} to allow none */
+    public SpecSources(Path specDir) {
+        this.specDir = specDir == null ? null : specDir.toAbsolutePath().normalize();
+    }
+
+    /**
+     * The source to fetch for {@code swaggerUrl}: the URL itself, or the local path resolved inside the
+     * spec directory.
+     *
+     * @throws IllegalArgumentException if the source is a local path outside the spec directory
+     */
+    public String resolve(String swaggerUrl) {
+        if (SwaggerParser.isHttpSource(swaggerUrl)) {
+            return swaggerUrl;
+        }
+        if (specDir == null) {
+            throw new IllegalArgumentException("Local specs are not allowed; use an http(s) URL: " + swaggerUrl);
+        }
+        Path path;
+        try {
+            path = swaggerUrl.startsWith("file:") ? Path.of(URI.create(swaggerUrl)) : Path.of(swaggerUrl);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid spec path: " + swaggerUrl, e);
+        }
+        Path resolved = specDir.resolve(path).normalize();
+        if (!resolved.startsWith(specDir) || !insideAfterLinks(resolved)) {
+            throw new IllegalArgumentException("Local specs must be inside the spec directory: " + swaggerUrl);
+        }
+        return resolved.toString();
+    }
+
+    /** Symbolic links must not lead out of the spec directory either. */
+    private boolean insideAfterLinks(Path resolved) {
+        if (!Files.exists(resolved)) return true;
+        try {
+            return resolved.toRealPath().startsWith(specDir.toRealPath());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
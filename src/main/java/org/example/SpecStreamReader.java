@@ -0,0 +1,154 @@
+package org.example;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+
+/**
+ * Token-level reader for OpenAPI documents.
+ * Streams the input through a Jackson {@link JsonParser} and materializes only the parts
+ * the generator uses ({@code paths}, {@code components.schemas}, {@code components.parameters}, the security
+ * schemes and the top-level {@code security} requirements), skipping
+ * documentation-only fields such as descriptions, {@code examples} blobs and {@code x-} extensions
+ * without ever building them as nodes. Only keyword objects are filtered; maps keyed by names from the spec
+ * (paths, properties, security schemes and requirements...) keep every key. {@code examples} can be retained for generating test data.
+ */
+public class SpecStreamReader {
+
+    private static final String EXAMPLES = "examples";
+
+    /** Keywords that never influence the generated script. */
+    private static final Set<String> SKIPPED_FIELDS = Set.of("description", "summary", EXAMPLES, "externalDocs");
+
+    /** Objects whose keys are user-defined names (paths, property names, status codes...) rather than keywords. */
+    private static final Set<String> NAME_MAPS = Set.of(
+            "paths", "schemas", "properties", "responses", "content", "headers", "encoding", "callbacks", "links");
+
+    /** Vendor extensions the generator reads; all other {@code x-} fields are skipped. */
+    private static final Set<String> RETAINED_EXTENSIONS = Set.of("x-latency-slo");
+
+    /**
+     * Keywords whose values are literal JSON and are kept verbatim. Security requirements and OAuth scopes are
+     * keyed by scheme and scope names, which may look like extensions or skipped keywords.
+     */
+    private static final Set<String> LITERAL_FIELDS = Set.of("example", "default", "enum", "const", "security", "scopes");
+
+    /** Sections of {@code components} that are retained. */
+    private static final Set<String> RETAINED_COMPONENTS = Set.of("schemas", "parameters", "securitySchemes");
+
+    private enum Mode { REGULAR, NAME_MAP, LITERAL }
+
+    private final ObjectMapper objectMapper;
+    private final JsonNodeFactory nodeFactory;
+    private final boolean retainExamples;
+
+    public SpecStreamReader(ObjectMapper objectMapper) {
+        this(objectMapper, false);
+    }
+
+    /**
+     * @param objectMapper   mapper used to parse the stream
+     * @param retainExamples keep {@code examples} values verbatim instead of skipping them
+     */
+    public SpecStreamReader(ObjectMapper objectMapper, boolean retainExamples) {
+        this.objectMapper = objectMapper;
+        this.nodeFactory = objectMapper.getNodeFactory();
+        this.retainExamples = retainExamples;
+    }
+
+    /**
+     * Reads the retained subset of an OpenAPI document from the given stream.
+     * The stream is consumed but not closed.
+     *
+     * @param in JSON content of the spec
+     * @return an object node with {@code paths} and the retained {@code components} (either may be absent)
+     * @throws IOException if the content is not a JSON object
+     */
+    public JsonNode read(InputStream in) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Swagger spec must be a JSON object");
+            }
+            ObjectNode root = nodeFactory.objectNode();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                switch (name) {
+                    case "openapi", "swagger", "security" -> root.set(name, objectMapper.readTree(parser));
+                    case "paths" -> root.set(name, readValue(parser, Mode.NAME_MAP));
+                    case "components" -> root.set(name, readComponents(parser));
+                    default -> parser.skipChildren();
+                }
+            }
+            return root;
+        }
+    }
+
+    private JsonNode readComponents(JsonParser parser) throws IOException {
+        ObjectNode components = nodeFactory.objectNode();
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return components;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            if (RETAINED_COMPONENTS.contains(name)) {
+                components.set(name, readValue(parser, Mode.NAME_MAP));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return components;
+    }
+
+    private JsonNode readValue(JsonParser parser, Mode mode) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (mode == Mode.LITERAL || token.isScalarValue()) {
+            return objectMapper.readTree(parser);
+        }
+        if (token == JsonToken.START_ARRAY) {
+            ArrayNode array = nodeFactory.arrayNode();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                array.add(readValue(parser, Mode.REGULAR));
+            }
+            return array;
+        }
+
+        ObjectNode object = nodeFactory.objectNode();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            if (mode == Mode.NAME_MAP) {
+                // Keys are names chosen by the spec author, so nothing is filtered at this level
+                object.set(name, readValue(parser, Mode.REGULAR));
+            } else if (isSkipped(name)) {
+                parser.skipChildren();
+            } else {
+                object.set(name, readValue(parser, childMode(name)));
+            }
+        }
+        return object;
+    }
+
+    private Mode childMode(String fieldName) {
+        if (LITERAL_FIELDS.contains(fieldName) || RETAINED_EXTENSIONS.contains(fieldName)) return Mode.LITERAL;
+        if (retainExamples && EXAMPLES.equals(fieldName)) return Mode.LITERAL;
+        if (NAME_MAPS.contains(fieldName)) return Mode.NAME_MAP;
+        return Mode.REGULAR;
+    }
+
+    private boolean isSkipped(String fieldName) {
+        if (fieldName.startsWith("x-")) return !RETAINED_EXTENSIONS.contains(fieldName);
+        if (retainExamples && EXAMPLES.equals(fieldName)) return false;
+        return SKIPPED_FIELDS.contains(fieldName);
+    }
+}
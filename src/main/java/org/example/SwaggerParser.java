@@ -5,50 +5,292 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 /**
  * Utility for fetching and parsing Swagger (OpenAPI) JSON specs.
+ * Specs are streamed straight into {@link SpecStreamReader}, so only the retained subset
+ * of the document is ever held in memory.
+ * Remote specs are fetched over HTTP/2 where available, with compression, a connect timeout and a read
+ * timeout that bounds the whole response, body included.
+ * With a {@link SpecCache}, requests are revalidated with {@code If-None-Match}/{@code If-Modified-Since}
+ * and a {@code 304} reuses the cached parsed spec.
+ * {@link #fetch(String)} also reports the bytes read and the time spent fetching and parsing.
  * Refactored for Java 21.
  */
 public class SwaggerParser {
 
     private static final Logger logger = LoggerFactory.getLogger(SwaggerParser.class);
+    private static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration DEFAULT_READ_TIMEOUT = Duration.ofSeconds(60);
+    /** Closes response bodies whose read timeout expired, which fails the read blocked on them. */
+    private static final ScheduledExecutorService BODY_WATCHDOG = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("spec-body-watchdog").daemon().factory());
+
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final SpecStreamReader specReader = new SpecStreamReader(objectMapper);
+    private final SpecStreamReader exampleReader = new SpecStreamReader(objectMapper, true);
+    private final HttpClient httpClient;
+    private final Duration readTimeout;
+    private final SpecCache specCache;
+
+    /**
+     * Outcome of {@link #fetch(String)}.
+     *
+     * @param spec        parsed spec
+     * @param bytes       bytes read from the network or file, before decompression
+     * @param fetchTime   time until the response headers arrived (or the file was opened)
+     * @param parseTime   time spent reading, decompressing and parsing the body
+     * @param notModified whether the spec was revalidated and taken from the {@link SpecCache}
+     */
+    public record Fetch(JsonNode spec, long bytes, Duration fetchTime, Duration parseTime, boolean notModified) {
+    }
 
     public SwaggerParser() {
-        // Default constructor
+        this(DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, null);
     }
 
     /**
-     * Fetches and parses Swagger JSON from the provided URL using Java 21 HttpClient.
-     * @param swaggerUrl URL to the Swagger (OpenAPI) definition
-     * @return Parsed JsonNode of the Swagger spec
+     * @param connectTimeout maximum time to establish a connection
+     * @param readTimeout    maximum time from sending the request until the whole response body is read
+     * @param specCache      cache used for conditional requests, or {@code null} to always download
+     */
+    public SwaggerParser(Duration connectTimeout, Duration readTimeout, SpecCache specCache) {
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.readTimeout = readTimeout;
+        this.specCache = specCache;
+    }
+
+    /**
+     * Fetches and parses Swagger JSON from the provided source.
+     * HTTP(S) URLs are downloaded with the Java 21 HttpClient; anything else is treated
+     * as a local file path or {@code file:} URI.
+     * @param swaggerUrl URL or local path of the Swagger (OpenAPI) definition
+     * @return Parsed JsonNode holding {@code paths} and {@code components.schemas}
      * @throws IOException if the request fails or the content is invalid
      */
     public JsonNode fetchSwaggerJson(final String swaggerUrl) throws IOException {
+        return fetch(swaggerUrl).spec();
+    }
+
+    /**
+     * Same as {@link #fetchSwaggerJson(String)}, returning transfer size and stage timings with the spec.
+     */
+    public Fetch fetch(final String swaggerUrl) throws IOException {
+        return fetch(swaggerUrl, false);
+    }
+
+    /**
+     * Same as {@link #fetch(String)}; with {@code retainExamples} the spec also keeps its {@code examples},
+     * which test data generation draws from.
+     */
+    public Fetch fetch(final String swaggerUrl, boolean retainExamples) throws IOException {
+        SpecStreamReader reader = retainExamples ? exampleReader : specReader;
         try {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(swaggerUrl))
-                    .GET()
-                    .build();
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (isHttpSource(swaggerUrl)) {
+                return fetchRemote(swaggerUrl, reader, SpecCache.variant(retainExamples));
+            }
+            return readLocal(swaggerUrl, reader);
+        } catch (Exception e) {
+            logger.error("Failed to retrieve Swagger JSON: {}", e.getMessage());
+            throw new IOException("Unable to connect to Swagger URL", e);
+        }
+    }
+
+    /**
+     * Parses a spec from an already opened stream. The stream is not closed.
+     * @param in JSON content of the spec
+     * @return Parsed JsonNode holding {@code paths} and {@code components.schemas}
+     * @throws IOException if the content is invalid
+     */
+    public JsonNode parse(final InputStream in) throws IOException {
+        return specReader.read(in);
+    }
+
+    private Fetch fetchRemote(String swaggerUrl, SpecStreamReader reader, String variant) throws IOException, InterruptedException {
+        SpecCache.Entry cached = specCache != null ? specCache.lookup(swaggerUrl, variant) : null;
 
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
+                .uri(URI.create(swaggerUrl))
+                .timeout(readTimeout)
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip, deflate")
+                .GET();
+        if (cached != null && cached.etag() != null) {
+            requestBuilder.header("If-None-Match", cached.etag());
+        }
+        if (cached != null && cached.lastModified() != null) {
+            requestBuilder.header("If-Modified-Since", cached.lastModified());
+        }
+        long start = System.nanoTime();
+        HttpResponse<InputStream> response = httpClient.send(requestBuilder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        Duration fetchTime = Duration.ofNanos(System.nanoTime() - start);
+
+        long remainingNanos = readTimeout.toNanos() - (System.nanoTime() - start);
+        try (DeadlineInputStream timed = new DeadlineInputStream(response.body(), remainingNanos, readTimeout);
+             CountingInputStream body = new CountingInputStream(timed)) {
+            if (response.statusCode() == 304 && cached != null) {
+                logger.info("Swagger JSON not modified, using cached copy: {}", swaggerUrl);
+                start = System.nanoTime();
+                JsonNode spec = specCache.load(cached.contentHash(), variant);
+                return new Fetch(spec, 0, fetchTime, Duration.ofNanos(System.nanoTime() - start), true);
+            }
             if (response.statusCode() != 200) {
                 logger.error("Non-200 response from Swagger URL: {} (status: {})", swaggerUrl, response.statusCode());
                 throw new IOException("Received status code: " + response.statusCode());
             }
 
-            logger.info("Successfully retrieved Swagger JSON from: {}", swaggerUrl);
-            return objectMapper.readTree(response.body());
-        } catch (Exception e) {
-            logger.error("Failed to retrieve Swagger JSON: {}", e.getMessage());
-            throw new IOException("Unable to connect to Swagger URL", e);
+            MessageDigest digest = SpecCache.newDigest();
+            start = System.nanoTime();
+            JsonNode spec = reader.read(new DigestInputStream(decode(body, response), digest));
+            Duration parseTime = Duration.ofNanos(System.nanoTime() - start);
+            logger.info("Successfully retrieved Swagger JSON from: {} ({})", swaggerUrl, response.version());
+
+            if (specCache != null) {
+                var entry = new SpecCache.Entry(
+                        response.headers().firstValue("ETag").orElse(null),
+                        response.headers().firstValue("Last-Modified").orElse(null),
+                        HexFormat.of().formatHex(digest.digest()));
+                specCache.store(swaggerUrl, entry, variant, spec);
+            }
+            return new Fetch(spec, body.count, fetchTime, parseTime, false);
+        }
+    }
+
+    /** Wraps the body in a decompressing stream according to its {@code Content-Encoding}. */
+    private static InputStream decode(InputStream body, HttpResponse<?> response) throws IOException {
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("identity").trim();
+        return switch (encoding.toLowerCase()) {
+            case "gzip", "x-gzip" -> new GZIPInputStream(body, 64 * 1024);
+            case "deflate" -> new InflaterInputStream(body);
+            case "identity", "" -> body;
+            default -> throw new IOException("Unsupported Content-Encoding: " + encoding);
+        };
+    }
+
+    private Fetch readLocal(String source, SpecStreamReader reader) throws IOException {
+        Path path = source.startsWith("file:") ? Path.of(URI.create(source)) : Path.of(source);
+        long start = System.nanoTime();
+        try (CountingInputStream in = new CountingInputStream(Files.newInputStream(path))) {
+            Duration fetchTime = Duration.ofNanos(System.nanoTime() - start);
+            start = System.nanoTime();
+            JsonNode spec = reader.read(in);
+            Duration parseTime = Duration.ofNanos(System.nanoTime() - start);
+            logger.info("Successfully read Swagger JSON from file: {}", path.toAbsolutePath());
+            return new Fetch(spec, in.count, fetchTime, parseTime, false);
+        }
+    }
+
+    static boolean isHttpSource(String source) {
+        return source.startsWith("http://") || source.startsWith("https://");
+    }
+
+    /**
+     * Fails reads with an {@link HttpTimeoutException} once its deadline has passed. A watchdog closes the
+     * underlying stream at the deadline, so a read blocked on a stalled transfer returns as well.
+     */
+    private static final class DeadlineInputStream extends FilterInputStream {
+        private final Duration timeout;
+        private final ScheduledFuture<?> watchdog;
+        private volatile boolean expired;
+
+        DeadlineInputStream(InputStream in, long remainingNanos, Duration timeout) {
+            super(in);
+            this.timeout = timeout;
+            this.watchdog = BODY_WATCHDOG.schedule(this::expire, Math.max(0, remainingNanos), TimeUnit.NANOSECONDS);
+        }
+
+        private void expire() {
+            expired = true;
+            try {
+                in.close();
+            } catch (IOException e) {
+                // The reader fails on its next read either way
+            }
+        }
+
+        private int checked(int n) throws IOException {
+            if (expired) throw new HttpTimeoutException("Response body not received within " + timeout);
+            return n;
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return checked(super.read());
+            } catch (IOException e) {
+                checked(0);
+                throw e;
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            try {
+                return checked(super.read(buffer, offset, length));
+            } catch (IOException e) {
+                checked(0);
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            watchdog.cancel(false);
+            super.close();
+        }
+    }
+
+    /** Counts the bytes read through it. */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
         }
     }
 }
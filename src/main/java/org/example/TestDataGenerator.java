@@ -0,0 +1,172 @@
+package org.example;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Generates varied test values from Swagger schemas for SharedArray data files.
+ * Values declared by the spec ({@code example}, {@code examples}, {@code enum}, {@code default}) are
+ * picked at random; anything else gets a random value matching its type, format and bounds.
+ * All randomness comes from the caller's {@link SplittableRandom}, so a seed always gives the same data.
+ * Thread-safe.
+ */
+public class TestDataGenerator {
+
+    private static final String COMPONENT_PREFIX = "#/components/schemas/";
+    private static final int MAX_DEPTH = 8;
+    private static final int MAX_ITEMS = 3;
+    private static final String ALPHANUMERIC = "abcdefghijklmnopqrstuvwxyz0123456789";
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+
+    private final JsonNode schemas;
+    private final JsonNodeFactory nodes = JsonNodeFactory.instance;
+
+    /** @param schemas {@code components.schemas}, or {@code null} */
+    public TestDataGenerator(JsonNode schemas) {
+        this.schemas = schemas;
+    }
+
+    /** A value for a path or query parameter, from the parameter's own literals before its schema. */
+    public JsonNode parameterValue(JsonNode param, SplittableRandom random) {
+        List<JsonNode> declared = declaredValues(param);
+        if (!declared.isEmpty()) return declared.get(random.nextInt(declared.size()));
+        return value(param.get("schema"), random);
+    }
+
+    /** A JSON request body, from the media type's examples or else its schema. */
+    public JsonNode bodyValue(JsonNode requestBody, SplittableRandom random) {
+        JsonNode appJson = requestBody.path("content").path("application/json");
+        List<JsonNode> declared = declaredValues(appJson);
+        if (!declared.isEmpty()) return declared.get(random.nextInt(declared.size()));
+        return value(appJson.get("schema"), random);
+    }
+
+    /** A random value conforming to {@code schema}. */
+    public JsonNode value(JsonNode schema, SplittableRandom random) {
+        return generate(schema, random, new ArrayDeque<>(), 0);
+    }
+
+    private JsonNode generate(JsonNode schema, SplittableRandom random, Deque<String> expanding, int depth) {
+        if (schema == null || schema.isMissingNode() || schema.isNull()) return nodes.objectNode();
+        if (schema.has("$ref")) {
+            String name = componentName(schema.get("$ref").asText());
+            if (expanding.contains(name) || depth >= MAX_DEPTH) return nodes.nullNode();
+            expanding.push(name);
+            try {
+                return generate(schemas == null ? null : schemas.get(name), random, expanding, depth + 1);
+            } finally {
+                expanding.pop();
+            }
+        }
+
+        List<JsonNode> declared = declaredValues(schema);
+        if (!declared.isEmpty()) return declared.get(random.nextInt(declared.size()));
+        if (depth >= MAX_DEPTH) return nodes.nullNode();
+
+        if (schema.has("allOf")) {
+            ObjectNode merged = nodes.objectNode();
+            for (JsonNode part : schema.get("allOf")) {
+                JsonNode value = generate(part, random, expanding, depth + 1);
+                if (value.isObject()) merged.setAll((ObjectNode) value);
+            }
+            return merged;
+        }
+        for (String keyword : List.of("oneOf", "anyOf")) {
+            JsonNode alternatives = schema.get(keyword);
+            if (alternatives != null && alternatives.isArray() && !alternatives.isEmpty()) {
+                return generate(alternatives.get(random.nextInt(alternatives.size())), random, expanding, depth);
+            }
+        }
+
+        String type = schema.path("type").asText(schema.has("properties") ? "object" : "string");
+        return switch (type) {
+            case "object" -> {
+                ObjectNode object = nodes.objectNode();
+                schema.path("properties").fields().forEachRemaining(property ->
+                        object.set(property.getKey(), generate(property.getValue(), random, expanding, depth + 1)));
+                yield object;
+            }
+            case "array" -> {
+                int min = Math.max(1, schema.path("minItems").asInt(1));
+                int max = Math.max(min, Math.min(schema.path("maxItems").asInt(MAX_ITEMS), MAX_ITEMS));
+                ArrayNode array = nodes.arrayNode();
+                for (int i = random.nextInt(min, max + 1); i > 0; i--) {
+                    array.add(generate(schema.get("items"), random, expanding, depth + 1));
+                }
+                yield array;
+            }
+            case "integer" -> {
+                long max = schema.path("maximum").asLong(Math.max(1000, schema.path("minimum").asLong() + 1000));
+                long min = Math.min(schema.path("minimum").asLong(Math.min(1, max)), max);
+                yield nodes.numberNode(min == max ? min : random.nextLong(min, max + 1));
+            }
+            case "number" -> {
+                double max = schema.path("maximum").asDouble(Math.max(1000, schema.path("minimum").asDouble() + 1000));
+                double min = Math.min(schema.path("minimum").asDouble(Math.min(1, max)), max);
+                yield nodes.numberNode(min == max ? min : Math.round(random.nextDouble(min, max) * 100) / 100.0);
+            }
+            case "boolean" -> nodes.booleanNode(random.nextBoolean());
+            default -> nodes.textNode(randomString(schema, random));
+        };
+    }
+
+    private static String randomString(JsonNode schema, SplittableRandom random) {
+        return switch (schema.path("format").asText()) {
+            case "date-time" -> DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(LocalDateTime.of(
+                    FIRST_DAY.plusDays(random.nextInt(366)), LocalTime.ofSecondOfDay(random.nextInt(86_400)))) + "Z";
+            case "date" -> FIRST_DAY.plusDays(random.nextInt(366)).toString();
+            case "uuid" -> new UUID((random.nextLong() & ~0xF000L) | 0x4000L,
+                    (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L).toString();
+            case "email" -> "user" + random.nextInt(100_000) + "@example.com";
+            case "uri", "url" -> "https://example.com/" + alphanumeric(random, 8);
+            default -> {
+                int max = Math.max(1, schema.path("maxLength").asInt(Math.max(12, schema.path("minLength").asInt())));
+                int min = Math.max(1, Math.min(schema.path("minLength").asInt(Math.min(6, max)), max));
+                yield alphanumeric(random, random.nextInt(min, max + 1));
+            }
+        };
+    }
+
+    private static String alphanumeric(SplittableRandom random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) chars[i] = ALPHANUMERIC.charAt(random.nextInt(ALPHANUMERIC.length()));
+        return new String(chars);
+    }
+
+    /**
+     * Distinct values declared on a parameter, media type or schema: {@code example}, {@code examples}
+     * (a list, or a map of example objects), {@code enum} and {@code default}.
+     */
+    static List<JsonNode> declaredValues(JsonNode node) {
+        Set<JsonNode> values = new LinkedHashSet<>();
+        if (node.has("example")) values.add(node.get("example"));
+        JsonNode examples = node.get("examples");
+        if (examples != null && examples.isArray()) {
+            examples.forEach(values::add);
+        } else if (examples != null && examples.isObject()) {
+            examples.forEach(example -> {
+                if (example.has("value")) values.add(example.get("value"));
+            });
+        }
+        JsonNode enumNode = node.get("enum");
+        if (enumNode != null && enumNode.isArray()) enumNode.forEach(values::add);
+        if (node.has("default")) values.add(node.get("default"));
+        if (values.isEmpty() && node.has("schema")) {
+            JsonNode schema = node.get("schema");
+            if (!schema.has("$ref")) return declaredValues(schema);
+        }
+        return new ArrayList<>(values);
+    }
+
+    private static String componentName(String ref) {
+        return ref.startsWith(COMPONENT_PREFIX) ? ref.substring(COMPONENT_PREFIX.length()) : ref;
+    }
+}
@@ -0,0 +1,22 @@
+package org.example;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Fork-join pools shared by all generations, one per parallelism level. Pools are created on first use and
+ * live as long as the process; their daemon workers retire when idle. At most one pool per available
+ * processor can exist, since {@link GenerationOptions#getParallelism()} is capped at that number.
+ */
+final class WorkerPools {
+
+    private static final ConcurrentMap<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+    private WorkerPools() {
+    }
+
+    static ForkJoinPool forParallelism(int parallelism) {
+        return POOLS.computeIfAbsent(parallelism, ForkJoinPool::new);
+    }
+}
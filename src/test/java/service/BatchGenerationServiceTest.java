@@ -0,0 +1,141 @@
+package service;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.qameta.allure.*;
+import org.example.BatchGenerationRequest;
+import org.example.BatchGenerationService;
+import org.example.GenerationOptions;
+import org.example.K6ScriptGeneratorService;
+import org.example.LoadProfile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Epic("K6 Script Generator")
+@Feature("Batch Generation")
+class BatchGenerationServiceTest {
+
+    @Test
+    @Story("ZIP streaming")
+    @Severity(SeverityLevel.CRITICAL)
+    void writesOneEntryPerSpecAndReportsFailures(@TempDir Path dir) throws Exception {
+        Path orders = dir.resolve("orders.json");
+        Path users = dir.resolve("users.json");
+        Files.writeString(orders, """
+                { "paths": { "/orders": { "get": { "tags": ["orders"], "responses": { "200": {} } } } } }
+                """);
+        Files.writeString(users, """
+                { "paths": { "/users": { "get": { "tags": ["users"], "responses": { "200": {} } } } } }
+                """);
+        BatchGenerationRequest request = new BatchGenerationRequest(List.of(
+                new BatchGenerationRequest.SpecSource("orders", orders.toString(), "t1"),
+                new BatchGenerationRequest.SpecSource("users", users.toString(), null),
+                new BatchGenerationRequest.SpecSource("users", users.toString(), null),
+                new BatchGenerationRequest.SpecSource("missing", dir.resolve("missing.json").toString(), null)), 2, null);
+
+        BatchGenerationService service = new BatchGenerationService(new K6ScriptGeneratorService(new ObjectMapper()));
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        service.writeZip(request, GenerationOptions.defaults(), archive);
+
+        Map<String, String> entries = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+
+        assertEquals(4, entries.size(), entries.keySet().toString());
+        assertTrue(entries.get("orders.js").contains("http.get(`${BASE_URL}/orders`"));
+        assertTrue(entries.get("users.js").contains("group('users'"));
+        assertTrue(entries.containsKey("users_2.js"));
+        assertTrue(entries.containsKey("missing.error.txt"));
+    }
+
+    @Test
+    @Story("ZIP streaming")
+    @Severity(SeverityLevel.NORMAL)
+    void deletesSpooledScriptsWhenTheClientDisconnects(@TempDir Path dir) throws Exception {
+        Path spec = dir.resolve("orders.json");
+        Files.writeString(spec, """
+                { "paths": { "/orders": { "get": { "tags": ["orders"], "responses": { "200": {} } } } } }
+                """);
+        List<BatchGenerationRequest.SpecSource> specs = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            specs.add(new BatchGenerationRequest.SpecSource("orders", spec.toString(), null));
+        }
+        Set<Path> spooledBefore = spooledScripts();
+
+        BatchGenerationService service = new BatchGenerationService(new K6ScriptGeneratorService(new ObjectMapper()));
+        OutputStream disconnected = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        assertThrows(IOException.class,
+                () -> service.writeZip(new BatchGenerationRequest(specs, 2, null), GenerationOptions.defaults(), disconnected));
+
+        assertEquals(spooledBefore, spooledScripts());
+    }
+
+    private static Set<Path> spooledScripts() throws IOException {
+        try (Stream<Path> files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(file -> file.getFileName().toString().startsWith("k6-batch-")).collect(Collectors.toSet());
+        }
+    }
+
+    @Test
+    @Story("Request binding")
+    @Severity(SeverityLevel.NORMAL)
+    void bindsGenerationOptionsFromJson() throws Exception {
+        BatchGenerationRequest request = new ObjectMapper().readValue("""
+                { "specs": [{ "swaggerUrl": "https://host/openapi.json" }],
+                  "options": { "thinkTimeSeconds": 0, "defaultLatencySloMs": 500,
+                               "loadProfile": { "executor": "CONSTANT_ARRIVAL_RATE", "rate": 50, "timeUnit": "1s",
+                                                "duration": "10m", "preAllocatedVUs": 20, "maxVUs": 200 } } }
+                """, BatchGenerationRequest.class);
+
+        GenerationOptions options = request.optionsOrDefaults();
+        assertEquals(LoadProfile.Executor.CONSTANT_ARRIVAL_RATE, options.getLoadProfile().executor());
+        assertEquals(50, options.getLoadProfile().rate());
+        assertEquals(0, options.getThinkTimeSeconds());
+        assertEquals(GenerationOptions.BatchMode.OFF, options.getBatchMode(), "unset fields keep their defaults");
+    }
+
+    @Test
+    @Story("Request binding")
+    @Severity(SeverityLevel.NORMAL)
+    void rejectsInvalidLoadProfilesWhenBinding() {
+        ObjectMapper mapper = new ObjectMapper();
+
+        assertThrows(JsonMappingException.class, () -> mapper.readValue("""
+                { "specs": [], "options": { "loadProfile": { "executor": "CONSTANT_ARRIVAL_RATE", "rate": 50,
+                                                             "duration": "10m'}; //", "preAllocatedVUs": 1, "maxVUs": 2 } } }
+                """, BatchGenerationRequest.class));
+        assertThrows(JsonMappingException.class, () -> mapper.readValue("""
+                { "specs": [], "options": { "loadProfile": { "rate": 50, "preAllocatedVUs": 1, "maxVUs": 2 } } }
+                """, BatchGenerationRequest.class));
+        assertThrows(JsonMappingException.class, () -> mapper.readValue("""
+                { "specs": [], "options": { "loadProfile": { "executor": "RAMPING_ARRIVAL_RATE", "stages": [] } } }
+                """, BatchGenerationRequest.class));
+    }
+}
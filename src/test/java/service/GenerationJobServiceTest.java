@@ -0,0 +1,130 @@
+package service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.qameta.allure.*;
+import org.example.GenerationJob;
+import org.example.GenerationJobService;
+import org.example.GenerationOptions;
+import org.example.K6ScriptGeneratorService;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Epic("K6 Script Generator")
+@Feature("Generation Jobs")
+class GenerationJobServiceTest {
+
+    /** Generator that blocks until released and counts its runs; "fail" specs throw. */
+    private static final class GatedGenerator extends K6ScriptGeneratorService {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger runs = new AtomicInteger();
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+
+        GatedGenerator() {
+            super(new ObjectMapper());
+        }
+
+        @Override
+        public Path generateK6Script(String swaggerUrl, String bearerToken, String scriptName, GenerationOptions options)
+                throws Exception {
+            runs.incrementAndGet();
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                assertTrue(release.await(5, TimeUnit.SECONDS));
+                if (swaggerUrl.startsWith("fail")) throw new IllegalStateException("Unable to connect to Swagger URL");
+                return Path.of(scriptName + ".js");
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+
+    @Test
+    @Story("Single-flight coalescing")
+    @Severity(SeverityLevel.CRITICAL)
+    void identicalSubmissionsShareOneGeneration() throws Exception {
+        GatedGenerator generator = new GatedGenerator();
+        try (GenerationJobService service = new GenerationJobService(generator, 2, 8, 8, Duration.ofHours(1))) {
+            GenerationJob first = service.submit("spec.json", "t", "orders", GenerationOptions.defaults());
+            GenerationJob second = service.submit("spec.json", "t", "orders", GenerationOptions.defaults());
+            GenerationJob otherOptions = service.submit("spec.json", "t", "orders",
+                    GenerationOptions.builder().modular(true).build());
+
+            assertSame(first, second);
+            assertNotSame(first, otherOptions);
+            generator.release.countDown();
+
+            assertEquals(Path.of("orders.js"), first.result().get(5, TimeUnit.SECONDS));
+            otherOptions.result().get(5, TimeUnit.SECONDS);
+            assertEquals(2, generator.runs.get());
+            GenerationJob.Status status = service.find(first.getId()).orElseThrow().status();
+            assertEquals(GenerationJob.State.SUCCEEDED, status.state());
+            assertEquals(2, status.requests());
+
+            GenerationJob again = service.submit("spec.json", "t", "orders", GenerationOptions.defaults());
+            assertNotSame(first, again, "a finished job is not joined");
+            again.result().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    @Story("Single-flight coalescing")
+    @Severity(SeverityLevel.CRITICAL)
+    void differingSubmissionsForTheSameScriptRunOneAfterTheOther() throws Exception {
+        GatedGenerator generator = new GatedGenerator();
+        try (GenerationJobService service = new GenerationJobService(generator, 4, 8, 8, Duration.ofHours(1))) {
+            GenerationJob first = service.submit("spec.json", "t", "orders", GenerationOptions.defaults());
+            GenerationJob otherToken = service.submit("spec.json", "u", "orders", GenerationOptions.defaults());
+            GenerationJob modular = service.submit("spec.json", "u", "orders", GenerationOptions.builder().modular(true).build());
+
+            first.started().get(5, TimeUnit.SECONDS);
+            assertEquals(GenerationJob.State.QUEUED, otherToken.status().state());
+            assertSame(modular, service.submit("spec.json", "u", "orders", GenerationOptions.builder().modular(true).build()),
+                    "the last job of a script is joined");
+            generator.release.countDown();
+
+            first.result().get(5, TimeUnit.SECONDS);
+            otherToken.result().get(5, TimeUnit.SECONDS);
+            modular.result().get(5, TimeUnit.SECONDS);
+            assertEquals(3, generator.runs.get());
+            assertEquals(1, generator.maxRunning.get());
+            assertFalse(otherToken.status().startedAt().isBefore(first.status().finishedAt()));
+        }
+    }
+
+    @Test
+    @Story("Backpressure and retention")
+    @Severity(SeverityLevel.CRITICAL)
+    void rejectsBeyondActiveLimitAndEvictsOldestResults() throws Exception {
+        GatedGenerator generator = new GatedGenerator();
+        try (GenerationJobService service = new GenerationJobService(generator, 1, 2, 1, Duration.ofHours(1))) {
+            GenerationJob orders = service.submit("spec.json", "", "orders", GenerationOptions.defaults());
+            GenerationJob failing = service.submit("fail.json", "", "users", GenerationOptions.defaults());
+
+            assertThrows(RejectedExecutionException.class,
+                    () -> service.submit("spec.json", "", "pets", GenerationOptions.defaults()));
+            assertSame(orders, service.submit("spec.json", "", "orders", GenerationOptions.defaults()),
+                    "joining an active job is never rejected");
+            generator.release.countDown();
+
+            orders.result().get(5, TimeUnit.SECONDS);
+            assertThrows(ExecutionException.class, () -> failing.result().get(5, TimeUnit.SECONDS));
+            assertEquals(GenerationJob.State.FAILED, failing.status().state());
+            assertEquals("Unable to connect to Swagger URL", failing.status().error());
+            service.submit("spec.json", "", "pets", GenerationOptions.defaults()).result().get(5, TimeUnit.SECONDS);
+
+            assertTrue(service.find(orders.getId()).isEmpty());
+            assertTrue(service.find(failing.getId()).isEmpty());
+            assertEquals(3, generator.runs.get());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.qameta.allure.*;
+import org.example.GenerationOptions;
+import org.example.K6ScriptGeneratorService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Epic("K6 Script Generator")
+@Feature("Generation Metrics")
+class GenerationMetricsTest {
+
+    @Test
+    @Story("Stage metrics")
+    @Severity(SeverityLevel.NORMAL)
+    void recordsStageTimingsAndSizesPerSource(@TempDir Path dir) throws Exception {
+        Path spec = dir.resolve("orders.json");
+        Files.writeString(spec, """
+                {
+                  "paths": {
+                    "/orders": {
+                      "get": { "tags": ["orders"], "responses": { "200": {} } },
+                      "post": { "tags": ["orders"], "requestBody": { "content": { "application/json": {
+                          "schema": { "$ref": "#/components/schemas/Order" } } } }, "responses": { "201": {} } }
+                    },
+                    "/users": { "get": { "tags": ["users"], "responses": { "200": {} } } }
+                  },
+                  "components": { "schemas": { "Order": { "properties": { "note": { "type": "string", "example": "ü" } } } } }
+                }
+                """);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        K6ScriptGeneratorService service = new K6ScriptGeneratorService(new ObjectMapper(), registry);
+
+        StringWriter script = new StringWriter();
+        service.writeK6Script(spec.toString(), "token", GenerationOptions.defaults(), script);
+
+        String source = K6ScriptGeneratorService.scriptNameFor(spec.toString());
+        assertEquals(3, registry.get("k6gen.operations").tag("source", source).counter().count());
+        assertEquals(2, registry.get("k6gen.tags").tag("source", source).counter().count());
+        assertEquals(1, registry.get("k6gen.schemas.resolved").tag("source", source).counter().count());
+        assertEquals(Files.size(spec), registry.get("k6gen.spec.bytes").summary().totalAmount());
+        assertEquals(script.toString().getBytes(StandardCharsets.UTF_8).length,
+                registry.get("k6gen.script.bytes").summary().totalAmount());
+        for (String stage : new String[]{"fetch", "parse", "compile", "body", "generate"}) {
+            assertEquals(1, registry.get("k6gen.stage.duration").tag("stage", stage).timer().count(), stage);
+        }
+        assertEquals(1, registry.get("k6gen.generation.duration").tag("outcome", "success").timer().count());
+        assertEquals(1, registry.get("k6gen.cache.lookups").tag("cache", "spec").tag("result", "miss").counter().count());
+    }
+}
@@ -0,0 +1,227 @@
+package service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.qameta.allure.*;
+import org.example.CompiledSpec;
+import org.example.GenerationCache;
+import org.example.GenerationOptions;
+import org.example.GroupFunctionBuilder;
+import org.example.SpecCompiler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Epic("K6 Script Generator")
+@Feature("Group Function Generation")
+class GroupFunctionBuilderTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private JsonNode syntheticPaths(int operations, int tags) {
+        ObjectNode paths = mapper.createObjectNode();
+        for (int i = 0; i < operations; i++) {
+            ObjectNode get = paths.putObject("/resource" + i + "/{id}").putObject("get");
+            get.putArray("tags").add("tag" + (i * 7 % tags));
+            ObjectNode param = get.putArray("parameters").addObject();
+            param.put("name", "id").put("in", "path").put("example", i);
+            get.putObject("responses").putObject("200");
+        }
+        return paths;
+    }
+
+    @Test
+    @Story("Parallel generation")
+    @Severity(SeverityLevel.CRITICAL)
+    void parallelOutputMatchesSequentialOutput() {
+        JsonNode paths = syntheticPaths(1_000, 13);
+        JsonNode components = mapper.createObjectNode();
+
+        GenerationOptions sequential = GenerationOptions.builder().parallelism(1).build();
+        GenerationOptions parallel = GenerationOptions.builder().parallelism(4).parallelThreshold(1).chunkSize(10).build();
+
+        Map<String, StringBuilder> expected = new GroupFunctionBuilder(paths, components, sequential).buildGroupedFunctions();
+        Map<String, StringBuilder> actual = new GroupFunctionBuilder(paths, components, parallel).buildGroupedFunctions();
+
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(actual.keySet()));
+        for (String tag : expected.keySet()) {
+            assertEquals(expected.get(tag).toString(), actual.get(tag).toString(), "group " + tag);
+        }
+        assertEquals(List.of("tag0", "tag7", "tag1"), new ArrayList<>(actual.keySet()).subList(0, 3));
+    }
+
+    @Test
+    @Story("Parallel generation")
+    @Severity(SeverityLevel.NORMAL)
+    void outOfRangeParallelismAndChunkSizeAreClamped() {
+        JsonNode paths = syntheticPaths(50, 3);
+        GenerationOptions invalid = GenerationOptions.builder().parallelism(-2).parallelThreshold(1).chunkSize(0).build();
+
+        assertEquals(1, invalid.getParallelism());
+        assertEquals(1, invalid.getChunkSize());
+        assertTrue(GenerationOptions.builder().parallelism(Integer.MAX_VALUE).build().getParallelism()
+                <= Runtime.getRuntime().availableProcessors());
+        assertEquals(new GroupFunctionBuilder(paths, mapper.createObjectNode(), GenerationOptions.builder().parallelism(1).build())
+                        .buildGroupedFunctions().toString(),
+                new GroupFunctionBuilder(paths, mapper.createObjectNode(), invalid).buildGroupedFunctions().toString());
+    }
+
+    @Test
+    @Story("Path and parameter handling")
+    @Severity(SeverityLevel.CRITICAL)
+    void mergesPathLevelAndReferencedParametersWithoutRegex() throws Exception {
+        JsonNode root = mapper.readTree("""
+                {
+                  "paths": {
+                    "/files/{fileId}/versions/{version}": {
+                      "summary": "not an operation",
+                      "parameters": [
+                        { "name": "fileId", "in": "path", "example": "a$b\\\\c" },
+                        { "name": "version", "in": "path", "example": 1 }
+                      ],
+                      "get": {
+                        "tags": ["files"],
+                        "parameters": [
+                          { "name": "version", "in": "path", "schema": { "type": "integer", "example": 2 } },
+                          { "$ref": "#/components/parameters/Filter" }
+                        ],
+                        "responses": { "200": {}, "default": {} }
+                      }
+                    }
+                  },
+                  "components": {
+                    "parameters": { "Filter": { "name": "filter", "in": "query", "example": "x y&z=1" } }
+                  }
+                }
+                """);
+
+        Map<String, StringBuilder> groups = GroupFunctionBuilder.forSpec(root, GenerationOptions.defaults()).buildGroupedFunctions();
+
+        assertEquals(List.of("files"), new ArrayList<>(groups.keySet()));
+        String block = groups.get("files").toString();
+        assertTrue(block.contains("http.get(`${BASE_URL}/files/a%24b%5Cc/versions/2?filter=x+y%26z%3D1`"), block);
+        assertTrue(block.contains("let allowed = [200];"), block);
+    }
+
+    @Test
+    @Story("Incremental generation")
+    @Severity(SeverityLevel.CRITICAL)
+    void regeneratesOnlyOperationsWhoseDefinitionOrSchemasChanged(@TempDir Path dir) throws Exception {
+        ObjectNode root = (ObjectNode) mapper.readTree("""
+                { "components": { "schemas": {
+                    "Pet": { "properties": { "name": { "type": "string" } } },
+                    "Order": { "properties": { "qty": { "type": "integer" } } } } } }
+                """);
+        ObjectNode paths = root.putObject("paths");
+        for (int i = 0; i < 20; i++) {
+            ObjectNode post = paths.putObject("/r" + i).putObject("post");
+            post.putObject("requestBody").putObject("content").putObject("application/json")
+                    .putObject("schema").put("$ref", "#/components/schemas/" + (i < 5 ? "Order" : "Pet"));
+            post.putObject("responses").putObject("201");
+        }
+        GenerationOptions options = GenerationOptions.builder().parallelism(1).incremental(true).build();
+        Path cacheFile = dir.resolve("script.json");
+
+        GenerationCache first = GenerationCache.load(cacheFile, options);
+        GroupFunctionBuilder.forSpec(root, options).useCache(first).buildGroupedFunctions();
+        first.save();
+        assertEquals(0, first.getHits());
+
+        ((ObjectNode) root.at("/components/schemas/Order/properties")).putObject("note").put("type", "string");
+        ((ObjectNode) paths.get("/r19").get("post").get("responses")).putObject("409");
+
+        GenerationCache second = GenerationCache.load(cacheFile, options);
+        Map<String, StringBuilder> incremental = GroupFunctionBuilder.forSpec(root, options).useCache(second).buildGroupedFunctions();
+        Map<String, StringBuilder> full = GroupFunctionBuilder.forSpec(root, options).buildGroupedFunctions();
+
+        assertEquals(14, second.getHits());
+        assertEquals(6, second.getMisses());
+        assertEquals(full.get("general").toString(), incremental.get("general").toString());
+    }
+
+    @Test
+    @Severity(SeverityLevel.NORMAL)
+    void ignoresCacheWrittenByAnOlderGeneratorVersion(@TempDir Path dir) throws Exception {
+        JsonNode root = mapper.readTree("""
+                { "paths": { "/pets": { "get": { "responses": { "200": {} } } } } }
+                """);
+        GenerationOptions options = GenerationOptions.builder().incremental(true).build();
+        Path cacheFile = dir.resolve("script.json");
+        GenerationCache first = GenerationCache.load(cacheFile, options);
+        GroupFunctionBuilder.forSpec(root, options).useCache(first).buildGroupedFunctions();
+        first.save();
+
+        ObjectNode older = (ObjectNode) mapper.readTree(cacheFile.toFile());
+        older.put("version", older.get("version").asInt() - 1);
+        ObjectNode entries = (ObjectNode) older.get("entries");
+        entries.fieldNames().forEachRemaining(fingerprint -> entries.put(fingerprint, "// stale block\n"));
+        mapper.writeValue(cacheFile.toFile(), older);
+
+        GenerationCache second = GenerationCache.load(cacheFile, options);
+        Map<String, StringBuilder> groups = GroupFunctionBuilder.forSpec(root, options).useCache(second).buildGroupedFunctions();
+
+        assertEquals(0, second.getHits());
+        assertFalse(groups.get("general").toString().contains("stale block"));
+    }
+
+    @Test
+    @Story("Batched requests")
+    @Severity(SeverityLevel.NORMAL)
+    void batchesGetRequestsAndAppliesConfiguredThinkTime() throws Exception {
+        JsonNode root = mapper.readTree("""
+                { "paths": {
+                    "/a": { "get": { "responses": { "200": {} } }, "post": { "responses": { "201": {} } } },
+                    "/b": { "get": { "responses": { "200": {} } } },
+                    "/c": { "get": { "responses": { "200": {} } } } } }
+                """);
+        GenerationOptions options = GenerationOptions.builder()
+                .batchMode(GenerationOptions.BatchMode.GET_ONLY).batchSize(2).thinkTimeSeconds(0.5).build();
+
+        String block = GroupFunctionBuilder.forSpec(root, options).buildGroupedFunctions().get("general").toString();
+
+        assertTrue(block.contains("""
+                   let batch_GET__a = http.batch([
+                      ['GET', `${BASE_URL}/a`, null, { headers: HEADERS }],
+                      ['GET', `${BASE_URL}/b`, null, { headers: HEADERS }],
+                   ]);
+                   let response_GET__a = batch_GET__a[0];
+                """), block);
+        assertTrue(block.contains("let response_GET__b = batch_GET__a[1];"), block);
+        assertTrue(block.contains("let batch_GET__c = http.batch(["), block);
+        assertTrue(block.contains("let response_POST__a = http.post("), block);
+        assertTrue(block.indexOf("batch_GET__a = ") < block.indexOf("response_POST__a = "), "batch is placed at its first request");
+        assertEquals(3, block.split("sleep\\(0\\.5\\);", -1).length - 1, "one think time per batch or single request");
+        assertTrue(block.contains("check(response_GET__b"), block);
+    }
+
+    @Test
+    @Story("Compiled model")
+    @Severity(SeverityLevel.NORMAL)
+    void emitsFromCompiledSpecWithSharedStrings() {
+        JsonNode paths = syntheticPaths(50, 3);
+        ObjectNode root = mapper.createObjectNode();
+        root.set("paths", paths);
+        GenerationOptions options = GenerationOptions.builder().parallelism(1).build();
+
+        CompiledSpec spec = SpecCompiler.compile(root, options, null);
+        Map<String, StringBuilder> fromTree = GroupFunctionBuilder.forSpec(root, options).buildGroupedFunctions();
+        Map<String, StringBuilder> fromModel = new GroupFunctionBuilder(spec, options).buildGroupedFunctions();
+
+        assertEquals(50, spec.operationCount());
+        assertEquals(fromTree.keySet(), fromModel.keySet());
+        for (String tag : fromTree.keySet()) {
+            assertEquals(fromTree.get(tag).toString(), fromModel.get(tag).toString(), "group " + tag);
+        }
+        List<CompiledSpec.Operation> operations = spec.groups().get(0).operations();
+        assertSame(operations.get(0).method(), operations.get(1).method());
+        assertSame(operations.get(0).parameters().get(0).name(), operations.get(1).parameters().get(0).name());
+        assertSame(operations.get(0).statusCodes().get(0), operations.get(1).statusCodes().get(0));
+    }
+}
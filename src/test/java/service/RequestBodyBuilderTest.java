@@ -0,0 +1,75 @@
+package service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.qameta.allure.*;
+import org.example.RequestBodyBuilder;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Epic("K6 Script Generator")
+@Feature("Request Body Generation")
+class RequestBodyBuilderTest {
+
+    private static final String COMPONENTS = """
+            {
+              "Pet": { "type": "object", "properties": {
+                "name": { "type": "string", "example": "doggie" },
+                "category": { "$ref": "#/components/schemas/Category" },
+                "tags": { "type": "array", "items": { "$ref": "#/components/schemas/Tag" } },
+                "owner": { "$ref": "#/components/schemas/Owner" } } },
+              "Category": { "type": "object", "properties": { "id": { "type": "integer" } } },
+              "Tag": { "type": "object", "properties": { "label": { "type": "string", "enum": ["a", "b"] } } },
+              "Owner": { "type": "object", "properties": {
+                "pets": { "type": "array", "items": { "$ref": "#/components/schemas/Pet" } } } },
+              "Order": { "allOf": [
+                { "$ref": "#/components/schemas/Category" },
+                { "properties": { "kind": { "oneOf": [{ "type": "boolean" }, { "type": "string" }] },
+                                  "at": { "type": "string", "format": "date" } } } ] }
+            }
+            """;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private JsonNode body(String ref) throws Exception {
+        return mapper.readTree("""
+                { "content": { "application/json": { "schema": { "$ref": "#/components/schemas/%s" } } } }
+                """.formatted(ref));
+    }
+
+    @Test
+    @Story("Schema resolution")
+    @Severity(SeverityLevel.CRITICAL)
+    void resolvesNestedRefsArraysAndCompositions() throws Exception {
+        RequestBodyBuilder builder = new RequestBodyBuilder(mapper.readTree(COMPONENTS));
+
+        JsonNode pet = mapper.readTree(builder.buildBodyJson(body("Pet")));
+        assertEquals("doggie", pet.path("name").asText());
+        assertEquals(123, pet.path("category").path("id").asInt());
+        assertEquals("a", pet.path("tags").get(0).path("label").asText());
+        assertTrue(pet.path("owner").path("pets").get(0).isNull(), "recursive reference is cut");
+
+        JsonNode order = mapper.readTree(builder.buildBodyJson(body("Order")));
+        assertEquals(123, order.path("id").asInt());
+        assertTrue(order.path("kind").asBoolean());
+        assertEquals("2024-01-01", order.path("at").asText());
+    }
+
+    @Test
+    @Story("Schema resolution")
+    @Severity(SeverityLevel.NORMAL)
+    void templatesDoNotDependOnCompileOrder() throws Exception {
+        JsonNode components = mapper.readTree(COMPONENTS);
+        RequestBodyBuilder petFirst = new RequestBodyBuilder(components);
+        RequestBodyBuilder ownerFirst = new RequestBodyBuilder(components);
+
+        String pet = petFirst.buildBodyJson(body("Pet"));
+        String owner = petFirst.buildBodyJson(body("Owner"));
+
+        assertEquals(owner, ownerFirst.buildBodyJson(body("Owner")));
+        assertEquals(pet, ownerFirst.buildBodyJson(body("Pet")));
+        assertEquals(pet, petFirst.buildBodyJson(body("Pet")));
+        assertEquals(4, petFirst.getSchemaResolver().compiledSchemaCount());
+    }
+}
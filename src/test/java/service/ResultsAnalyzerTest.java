@@ -0,0 +1,91 @@
+package service;
+
+import io.qameta.allure.*;
+import org.example.ResultsAnalyzer;
+import org.example.RunReport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Epic("K6 Script Generator")
+@Feature("Result Analysis")
+class ResultsAnalyzerTest {
+
+    @TempDir
+    Path baselines;
+
+    private static String point(String metric, double value, String name) {
+        return "{\"metric\":\"" + metric + "\",\"type\":\"Point\",\"data\":{\"time\":\"2024-05-01T10:00:00.0Z\",\"value\":"
+                + value + ",\"tags\":{\"group\":\"::pets\",\"method\":\"GET\",\"name\":\"" + name + "\",\"status\":\"200\"}}}\n";
+    }
+
+    private static RunReport analyze(ResultsAnalyzer analyzer, String ndjson) throws Exception {
+        return analyzer.analyze(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    @Story("NDJSON ingestion")
+    @Severity(SeverityLevel.CRITICAL)
+    void aggregatesLatencyPercentilesAndErrorRatePerOperationName() throws Exception {
+        ResultsAnalyzer analyzer = new ResultsAnalyzer(baselines, 0.1, 5, 0.01);
+        StringBuilder ndjson = new StringBuilder()
+                .append("{\"type\":\"Metric\",\"data\":{\"name\":\"http_req_duration\",\"type\":\"trend\",\"contains\":\"time\",")
+                .append("\"thresholds\":[],\"submetrics\":null},\"metric\":\"http_req_duration\"}\n");
+        for (int i = 1; i <= 100; i++) {
+            ndjson.append(point("http_req_duration", i, "GET__pets"))
+                    .append(point("http_req_failed", i > 95 ? 1 : 0, "GET__pets"))
+                    .append(point("http_reqs", 1, "GET__pets"));
+        }
+        // Field order is not fixed; data may come before the metric name
+        ndjson.append("{\"type\":\"Point\",\"data\":{\"tags\":{\"name\":\"getOrder\"},\"value\":12.5},\"metric\":\"http_req_duration\"}\n")
+                .append(point("iteration_duration", 5000, "GET__pets"))
+                .append("{\"metric\":\"http_req_duration\",\"type\":\"Point\",\"data\":{\"value\":9");
+
+        RunReport report = analyze(analyzer, ndjson.toString());
+
+        assertEquals(List.of("GET__pets", "getOrder"), List.copyOf(report.operations().keySet()));
+        RunReport.OperationStats pets = report.operations().get("GET__pets");
+        assertEquals(100, pets.requests());
+        assertEquals(50, pets.p50(), 0.05);
+        assertEquals(95, pets.p95(), 0.1);
+        assertEquals(99, pets.p99(), 0.1);
+        assertEquals(100, pets.max(), 0.1);
+        assertEquals(0.05, pets.errorRate(), 1e-9);
+        assertEquals(1, report.operations().get("getOrder").requests());
+        assertEquals(12.5, report.operations().get("getOrder").p50(), 0.01);
+    }
+
+    @Test
+    @Story("Baseline comparison")
+    @Severity(SeverityLevel.CRITICAL)
+    void flagsOperationsThatGotSlowerOrFailMoreThanTheirStoredBaseline() throws Exception {
+        ResultsAnalyzer analyzer = new ResultsAnalyzer(baselines, 0.1, 5, 0.01);
+        RunReport baseline = new RunReport(new TreeMap<>(Map.of(
+                "GET__pets", new RunReport.OperationStats(100, 20, 100, 150, 200, 0.0),
+                "getOrder", new RunReport.OperationStats(100, 1, 2, 3, 4, 0.02))));
+        RunReport current = new RunReport(new TreeMap<>(Map.of(
+                "GET__pets", new RunReport.OperationStats(100, 20, 130, 160, 400, 0.05),
+                "getOrder", new RunReport.OperationStats(100, 1, 4, 6, 8, 0.025),
+                "POST__pets", new RunReport.OperationStats(10, 1, 900, 900, 900, 1.0))));
+
+        ResultsAnalyzer.Analysis first = analyzer.compare("petstore", baseline, true);
+        assertNull(first.baseline());
+        assertTrue(first.regressions().isEmpty());
+        assertEquals(baseline, analyzer.findBaseline("petstore").orElseThrow());
+
+        ResultsAnalyzer.Analysis second = analyzer.compare("petstore", current, false);
+        assertEquals(baseline, second.baseline());
+        assertEquals(List.of(
+                new RunReport.Regression("GET__pets", "p95", 100, 130),
+                new RunReport.Regression("GET__pets", "errorRate", 0.0, 0.05)), second.regressions());
+        assertEquals(baseline, analyzer.findBaseline("petstore").orElseThrow());
+    }
+}
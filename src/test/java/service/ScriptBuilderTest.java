@@ -0,0 +1,374 @@
+package service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.qameta.allure.*;
+import org.example.GenerationOptions;
+import org.example.GroupFunctionBuilder;
+import org.example.LoadProfile;
+import org.example.ScriptBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Epic("K6 Script Generator")
+@Feature("Script Assembly")
+class ScriptBuilderTest {
+
+    private static final String SPEC = """
+            {
+              "paths": {
+                "/pets": {
+                  "get": { "tags": ["pets"], "responses": { "200": {} } },
+                  "post": { "tags": ["pets"], "requestBody": { "content": { "application/json": {
+                      "schema": { "properties": { "name": { "type": "string" } } } } } },
+                    "responses": { "201": {} } }
+                },
+                "/orders/{id}": {
+                  "get": { "tags": ["store"], "operationId": "getOrder", "x-latency-slo": 250,
+                    "parameters": [{ "name": "id", "in": "path", "example": 3 }],
+                    "responses": { "200": {}, "404": {} } }
+                }
+              }
+            }
+            """;
+
+    @Test
+    @Story("Streaming emission")
+    @Severity(SeverityLevel.CRITICAL)
+    void streamedScriptMatchesAssembledScript() throws Exception {
+        JsonNode root = new ObjectMapper().readTree(SPEC);
+        GroupFunctionBuilder groups = new GroupFunctionBuilder(root.get("paths"), root.path("components"));
+        ScriptBuilder scriptBuilder = new ScriptBuilder();
+
+        String assembled = scriptBuilder.buildFullScript(groups, "http://host", "token", "acme");
+        StringWriter streamed = new StringWriter();
+        scriptBuilder.writeFullScript(streamed, groups, "http://host", "token", "acme");
+
+        assertEquals(assembled, streamed.toString());
+        assertTrue(assembled.contains("group('store', () => {"));
+        assertTrue(assembled.contains("http.get(`${BASE_URL}/orders/3`"));
+    }
+
+    @Test
+    @Story("Streaming emission")
+    @Severity(SeverityLevel.CRITICAL)
+    void constantsAreEscapedAsStringLiterals() throws Exception {
+        JsonNode root = new ObjectMapper().readTree(SPEC);
+        StringWriter script = new StringWriter();
+
+        new ScriptBuilder().writeFullScript(script, new GroupFunctionBuilder(root.get("paths"), root.path("components")),
+                "http://host/it's", "a'; http.del('/all'); //\n\u2028", "ac\\me");
+        String js = script.toString();
+
+        assertTrue(js.contains("const BASE_URL = 'http://host/it\\'s';"), js);
+        assertTrue(js.contains("const TOKEN = 'a\\'; http.del(\\'/all\\'); //\\n\\u2028';"), js);
+        assertTrue(js.contains("const COMPANY = 'ac\\\\me';"), js);
+    }
+
+    @Test
+    @Story("Streaming emission")
+    @Severity(SeverityLevel.NORMAL)
+    void tagsWithQuotesAreEscapedInGroupFrames() throws Exception {
+        JsonNode root = new ObjectMapper().readTree("""
+                { "paths": { "/pets": { "get": { "tags": ["owner's \\\\ pets"], "responses": { "200": {} } } } } }
+                """);
+
+        StringWriter script = new StringWriter();
+        new ScriptBuilder().writeFullScript(script, new GroupFunctionBuilder(root.get("paths"), root.path("components")),
+                "http://host", "token", "acme");
+
+        assertTrue(script.toString().contains("if (!TARGET_GROUP || TARGET_GROUP === 'owner\\'s \\\\ pets') {\n"
+                + "    group('owner\\'s \\\\ pets', () => {"), script.toString());
+    }
+
+    @Test
+    @Story("Streaming emission")
+    @Severity(SeverityLevel.NORMAL)
+    void pathsWithTheSameIdentifierGetDistinctVariables() throws Exception {
+        JsonNode root = new ObjectMapper().readTree("""
+                { "paths": {
+                    "/a-b": { "get": { "responses": { "200": {} } } },
+                    "/a_b": { "get": { "responses": { "200": {} } } } } }
+                """);
+        GenerationOptions options = GenerationOptions.builder().instrumented(true).build();
+
+        StringWriter script = new StringWriter();
+        new ScriptBuilder().writeFullScript(script, GroupFunctionBuilder.forSpec(root, options), "http://host", "token", "acme");
+        String js = script.toString();
+
+        assertTrue(js.contains("let response_GET__a_b = http.get(`${BASE_URL}/a-b`"), js);
+        assertTrue(js.contains("let response_GET__a_b_2 = http.get(`${BASE_URL}/a_b`"), js);
+        assertTrue(js.contains("const duration_GET__a_b = new Trend('GET__a_b_duration', true);"), js);
+        assertTrue(js.contains("const duration_GET__a_b_2 = new Trend('GET__a_b_2_duration', true);"), js);
+    }
+
+    @Test
+    @Story("Load profiles")
+    @Severity(SeverityLevel.CRITICAL)
+    void emitsOneScenarioPerGroupWithThresholds() throws Exception {
+        JsonNode root = new ObjectMapper().readTree(SPEC);
+        GenerationOptions options = GenerationOptions.builder()
+                .loadProfile(LoadProfile.constantArrivalRate(20, "1s", "5m", 10, 100))
+                .tagProfiles(Map.of("store", LoadProfile.rampingArrivalRate(1, "1s", 5, 50,
+                        List.of(new LoadProfile.Stage("1m", 30), new LoadProfile.Stage("2m", 0)))))
+                .defaultLatencySloMs(800)
+                .build();
+
+        StringWriter script = new StringWriter();
+        new ScriptBuilder().writeFullScript(script, GroupFunctionBuilder.forSpec(root, options), "http://host", "token", "acme");
+        String js = script.toString();
+
+        assertFalse(js.contains("vus: 1"));
+        assertTrue(js.contains("'pets': { executor: 'constant-arrival-rate', rate: 20, timeUnit: '1s', duration: '5m', "
+                + "preAllocatedVUs: 10, maxVUs: 100, exec: 'group_pets' },"), js);
+        assertTrue(js.contains("'store': { executor: 'ramping-arrival-rate', startRate: 1, timeUnit: '1s', preAllocatedVUs: 5, "
+                + "maxVUs: 50, stages: [{ duration: '1m', target: 30 }, { duration: '2m', target: 0 }], exec: 'group_store' },"), js);
+        assertTrue(js.contains("'http_req_duration': ['p(95)<800'],"), js);
+        assertTrue(js.contains("'http_req_duration{name:getOrder}': ['p(95)<250'],"), js);
+        assertTrue(js.contains("{ headers: HEADERS, tags: { name: 'getOrder' } }"), js);
+        assertTrue(js.contains("export function group_store() {"), js);
+        assertTrue(js.contains("if (!TARGET_GROUP || TARGET_GROUP === 'pets') group_pets();"), js);
+    }
+
+    @Test
+    @Story("Load profiles")
+    @Severity(SeverityLevel.NORMAL)
+    void groupsWithoutProfileRunSmokeScenarioAndSlosApplyWithoutProfiles() throws Exception {
+        JsonNode root = new ObjectMapper().readTree(SPEC);
+        GenerationOptions tagOnly = GenerationOptions.builder()
+                .tagProfiles(Map.of("store", LoadProfile.constantArrivalRate(5, "1s", "1m", 2, 10)))
+                .build();
+        GenerationOptions sloOnly = GenerationOptions.builder().defaultLatencySloMs(800).build();
+
+        StringWriter scenarios = new StringWriter();
+        new ScriptBuilder().writeFullScript(scenarios, GroupFunctionBuilder.forSpec(root, tagOnly), "http://host", "token", "acme");
+        StringWriter single = new StringWriter();
+        new ScriptBuilder().writeFullScript(single, GroupFunctionBuilder.forSpec(root, sloOnly), "http://host", "token", "acme");
+
+        assertTrue(scenarios.toString().contains(
+                "'pets': { executor: 'constant-vus', vus: 1, duration: '3s', exec: 'group_pets' },"), scenarios.toString());
+        assertTrue(scenarios.toString().contains("'http_req_duration{name:getOrder}': ['p(95)<250'],"), scenarios.toString());
+        assertTrue(single.toString().contains("    vus: 1,\n    duration: '3s',\n"), single.toString());
+        assertTrue(single.toString().contains("'http_req_duration': ['p(95)<800'],"), single.toString());
+        assertTrue(single.toString().contains("'http_req_duration{name:getOrder}': ['p(95)<250'],"), single.toString());
+    }
+
+    @Test
+    @Story("Load profiles")
+    @Severity(SeverityLevel.CRITICAL)
+    void invalidLoadProfilesAreRejectedBeforeEmission() {
+        List<LoadProfile.Stage> injected = List.of(new LoadProfile.Stage("1s'}; import evil from 'x'; //", 10));
+
+        assertThrows(IllegalArgumentException.class, () -> LoadProfile.constantArrivalRate(10, "1s'}; //", "1m", 1, 10));
+        assertThrows(IllegalArgumentException.class, () -> LoadProfile.constantVus(1, "soon"));
+        assertThrows(IllegalArgumentException.class, () -> LoadProfile.rampingVus(1, injected));
+        assertThrows(IllegalArgumentException.class, () -> LoadProfile.constantArrivalRate(10, "1s", "1m", 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> LoadProfile.rampingArrivalRate(1, "1s", 5, 4, List.of()));
+        assertThrows(IllegalArgumentException.class,
+                () -> new LoadProfile(null, 1, 0, 0, "1s", "1m", 1, 1, List.of()));
+        assertDoesNotThrow(() -> LoadProfile.rampingVus(1, List.of(new LoadProfile.Stage("1m30s", 5), new LoadProfile.Stage("500ms", 0))));
+    }
+
+    @Test
+    @Story("Load profiles")
+    @Severity(SeverityLevel.NORMAL)
+    void scenarioValuesAreWrittenAsStringLiterals() throws Exception {
+        JsonNode root = new ObjectMapper().readTree(SPEC);
+        GenerationOptions options = GenerationOptions.builder()
+                .loadProfile(LoadProfile.rampingVus(2, List.of(new LoadProfile.Stage("1m30s", 5))))
+                .build();
+
+        StringWriter script = new StringWriter();
+        new ScriptBuilder().writeFullScript(script, GroupFunctionBuilder.forSpec(root, options), "http://host", "token", "acme");
+
+        assertTrue(script.toString().contains("'pets': { executor: 'ramping-vus', startVUs: 2, "
+                + "stages: [{ duration: '1m30s', target: 5 }], exec: 'group_pets' },"), script.toString());
+    }
+
+    @Test
+    @Story("Instrumentation")
+    @Severity(SeverityLevel.NORMAL)
+    void instrumentedScriptUsesStaticCheckNamesAndPerOperationMetrics() throws Exception {
+        JsonNode root = new ObjectMapper().readTree(SPEC);
+        GenerationOptions options = GenerationOptions.builder()
+                .instrumented(true)
+                .logMode(GenerationOptions.LogMode.ERRORS)
+                .build();
+
+        StringWriter script = new StringWriter();
+        new ScriptBuilder().writeFullScript(script, GroupFunctionBuilder.forSpec(root, options), "http://host", "token", "acme");
+        String js = script.toString();
+
+        assertTrue(js.contains("import { Trend, Rate } from 'k6/metrics';"), js);
+        assertTrue(js.contains("const duration_GET__orders__id_ = new Trend('getOrder_duration', true);"), js);
+        assertTrue(js.contains("const errors_GET__pets = new Rate('GET__pets_errors');"), js);
+        assertTrue(js.contains("http.get(`${BASE_URL}/orders/3`, { headers: HEADERS, tags: { name: 'getOrder' } });"), js);
+        assertTrue(js.contains("'status is documented': r => [200, 404].includes(r.status),"), js);
+        assertTrue(js.contains("}, { name: 'getOrder' });"), js);
+        assertTrue(js.contains("errors_GET__orders__id_.add(![200, 404].includes(response_GET__orders__id_.status));"), js);
+        assertTrue(js.contains("if (![201].includes(response_POST__pets.status)) console.warn("), js);
+        assertFalse(js.contains("status is ${got}"), "check names must not depend on the response");
+        assertFalse(js.contains("console.log("), js);
+        assertTrue(js.contains("export const options = {\n    vus: 1,\n    duration: '3s',\n    thresholds: {\n"
+                + "        'http_req_duration{name:getOrder}': ['p(95)<250'],\n    },\n};"), js);
+    }
+
+    @Test
+    @Story("Init-context hoisting")
+    @Severity(SeverityLevel.NORMAL)
+    void hoistedScriptReferencesInitContextConstants() throws Exception {
+        JsonNode root = new ObjectMapper().readTree(SPEC);
+        GenerationOptions hoisted = GenerationOptions.builder().hoisted(true).build();
+
+        StringWriter script = new StringWriter();
+        new ScriptBuilder().writeFullScript(script, GroupFunctionBuilder.forSpec(root, hoisted), "http://host", "token", "acme");
+        String js = script.toString();
+        StringWriter legacy = new StringWriter();
+        new ScriptBuilder().writeFullScript(legacy, GroupFunctionBuilder.forSpec(root, GenerationOptions.defaults()), "http://host", "token", "acme");
+
+        assertTrue(js.contains("function checkEndpoint(res, allowed, label) {"), js);
+        assertTrue(js.contains("const URL_GET__orders__id_ = `${BASE_URL}/orders/3`;"), js);
+        assertTrue(js.contains("const BODY_POST__pets = JSON.stringify({\"name\": \"sample\"});"), js);
+        assertEquals(1, js.split("const STATUS_200 = \\[200\\];", -1).length - 1, "status lists are shared");
+        assertTrue(js.contains("   let response_POST__pets = http.post(URL_POST__pets, BODY_POST__pets, PARAMS);\n"
+                + "   checkEndpoint(response_POST__pets, STATUS_201, `[POST] /pets`);\n"), js);
+        assertTrue(js.indexOf("const URL_POST__pets") < js.indexOf("export default function"), "constants live in the init context");
+        assertFalse(js.substring(js.indexOf("export default function")).contains("JSON.stringify"), js);
+        assertTrue(js.length() < legacy.toString().length());
+    }
+
+    @Test
+    @Story("Modular output")
+    @Severity(SeverityLevel.NORMAL)
+    void modularScriptSplitsGroupsIntoModulesWithEntryPoints() throws Exception {
+        JsonNode root = new ObjectMapper().readTree(SPEC);
+        GenerationOptions options = GenerationOptions.builder().modular(true).hoisted(true).build();
+
+        Map<String, StringWriter> files = new LinkedHashMap<>();
+        new ScriptBuilder().writeModules(path -> files.computeIfAbsent(path, k -> new StringWriter()),
+                GroupFunctionBuilder.forSpec(root, options), "http://host", "token", "acme");
+
+        assertEquals(List.of("lib.js", "groups/group_pets.js", "groups/group_store.js", "main.js",
+                "entries/group_pets.js", "entries/group_store.js"), List.copyOf(files.keySet()));
+        String lib = files.get("lib.js").toString();
+        assertTrue(lib.contains("export const HEADERS = {"), lib);
+        assertTrue(lib.contains("export function checkEndpoint(res, allowed, label) {"), lib);
+        assertTrue(lib.contains("export function handleSummary(data) {"), lib);
+
+        String store = files.get("groups/group_store.js").toString();
+        assertTrue(store.contains("import { BASE_URL, COMPANY, HEADERS, PARAMS, RESPONSE_CHECKS, checkEndpoint } from '../lib.js';"), store);
+        assertTrue(store.contains("const URL_GET__orders__id_ = `${BASE_URL}/orders/3`;"), store);
+        assertTrue(store.contains("export function group_store() {"), store);
+        assertFalse(store.contains("/pets"), store);
+
+        String entry = files.get("entries/group_store.js").toString();
+        assertTrue(entry.contains("import { group_store } from '../groups/group_store.js';"), entry);
+        assertFalse(entry.contains("group_pets"), entry);
+        assertTrue(entry.contains("export default function () {\n    group_store();\n}"), entry);
+
+        String main = files.get("main.js").toString();
+        assertTrue(main.contains("import { group_pets } from './groups/group_pets.js';"), main);
+        assertTrue(main.contains("if (!TARGET_GROUP || TARGET_GROUP === 'store') group_store();"), main);
+    }
+
+    @Test
+    @Story("Test data")
+    @Severity(SeverityLevel.CRITICAL)
+    void variedValuesAreReadFromSeededSharedArrays() throws Exception {
+        JsonNode root = new ObjectMapper().readTree(SPEC);
+        GenerationOptions options = GenerationOptions.builder().dataRows(5).build();
+
+        StringWriter script = new StringWriter();
+        new ScriptBuilder().writeFullScript(script, GroupFunctionBuilder.forSpec(root, options), "http://host", "token", "acme");
+        Map<String, StringWriter> files = dataFiles(root, options);
+        Map<String, StringWriter> again = dataFiles(root, options);
+        Map<String, StringWriter> reseeded = dataFiles(root, options.toBuilder().dataSeed(2).build());
+
+        String js = script.toString();
+        assertTrue(js.contains("import { SharedArray } from 'k6/data';"), js);
+        assertTrue(js.contains("const DATA_POST__pets = new SharedArray('POST__pets', () => JSON.parse(open(`${DATA_DIR}/POST__pets.json`)));"), js);
+        assertTrue(js.contains("let data_POST__pets = dataRow(DATA_POST__pets);"), js);
+        assertTrue(js.contains("http.get(`${BASE_URL}/pets`, { headers: HEADERS });"), js);
+        assertTrue(js.contains("http.post(`${BASE_URL}/pets`, body_POST__pets, { headers: HEADERS, tags: { name: 'POST__pets' } });"), js);
+        assertEquals(List.of("POST__pets.json"), List.copyOf(files.keySet()));
+        JsonNode rows = new ObjectMapper().readTree(files.get("POST__pets.json").toString());
+        assertEquals(5, rows.size());
+        assertTrue(new ObjectMapper().readTree(rows.get(0).get(0).asText()).get("name").isTextual());
+        assertEquals(files.get("POST__pets.json").toString(), again.get("POST__pets.json").toString());
+        assertNotEquals(files.get("POST__pets.json").toString(), reseeded.get("POST__pets.json").toString());
+    }
+
+    @Test
+    @Story("Setup authentication")
+    @Severity(SeverityLevel.CRITICAL)
+    void setupAcquiresTokenFromSecuritySchemeAndVusRenewItOnExpiryOr401() throws Exception {
+        ObjectNode root = (ObjectNode) new ObjectMapper().readTree(SPEC);
+        root.set("components", new ObjectMapper().readTree("""
+                { "securitySchemes": {
+                    "key": { "type": "apiKey", "in": "query", "name": "key" },
+                    "oauth": { "type": "oauth2", "flows": { "clientCredentials": { "tokenUrl": "/oauth/token", "scopes": {} } } } } }
+                """));
+        root.set("security", new ObjectMapper().readTree("[{ \"oauth\": [\"pets:read\", \"orders:read\"] }]"));
+        GenerationOptions options = GenerationOptions.builder().authMode(GenerationOptions.AuthMode.SETUP).build();
+
+        StringWriter script = new StringWriter();
+        new ScriptBuilder().writeFullScript(script, GroupFunctionBuilder.forSpec(root, options), "http://host", "token", "acme");
+        StringWriter hoisted = new StringWriter();
+        new ScriptBuilder().writeFullScript(hoisted, GroupFunctionBuilder.forSpec(root, options.toBuilder().hoisted(true).build()),
+                "http://host", "token", "acme");
+
+        String js = script.toString();
+        assertFalse(js.contains("'Authorization': `Bearer ${TOKEN}`"), js);
+        assertTrue(js.contains("const TOKEN_URL = __ENV.TOKEN_URL || BASE_URL + '/oauth/token';"), js);
+        assertTrue(js.contains("        scope: 'pets:read orders:read',\n"), js);
+        assertTrue(js.contains("export function setup() {\n    return { auth: acquireToken() };\n}"), js);
+        assertTrue(js.contains("if (auth.stale || (auth.expiresAt && Date.now() >= auth.expiresAt)) auth = acquireToken();"), js);
+        assertTrue(js.contains("export default function (data) {\n        authorize(data);"), js);
+        assertTrue(js.contains("   noteUnauthorized(response_GET__pets);\n"), js);
+        assertTrue(hoisted.toString().contains("function checkEndpoint(res, allowed, label) {\n    noteUnauthorized(res);\n"), hoisted.toString());
+        assertFalse(hoisted.toString().contains("noteUnauthorized(response_"), hoisted.toString());
+
+        ((ObjectNode) root.get("paths")).set("/auth/lo`${TOKEN}`in", new ObjectMapper().readTree("""
+                { "post": { "tags": ["auth"], "operationId": "login", "responses": { "200": {} } } }
+                """));
+        StringWriter login = new StringWriter();
+        new ScriptBuilder().writeFullScript(login, GroupFunctionBuilder.forSpec(root, options.toBuilder().loginOperation("login").build()),
+                "http://host", "token", "acme");
+        assertTrue(login.toString().contains("const res = http.request('POST', BASE_URL + '/auth/lo`${TOKEN}`in',\n"), login.toString());
+    }
+
+    @Test
+    @Story("Structured summary")
+    @Severity(SeverityLevel.NORMAL)
+    void jsonSummaryReportsEveryOperationFromNameTaggedSubmetrics() throws Exception {
+        JsonNode root = new ObjectMapper().readTree(SPEC);
+        GenerationOptions options = GenerationOptions.builder().summaryJson(true).build();
+
+        StringWriter script = new StringWriter();
+        new ScriptBuilder().writeFullScript(script, GroupFunctionBuilder.forSpec(root, options), "http://host", "token", "acme");
+
+        String js = script.toString();
+        assertTrue(js.contains("export const options = {\n    vus: 1,\n    duration: '3s',\n"), js);
+        assertTrue(js.contains("        'http_req_duration{name:getOrder}': ['p(95)<250'],\n"), js);
+        assertTrue(js.contains("        'http_req_failed{name:getOrder}': [],\n"), js);
+        assertTrue(js.contains("        'http_req_duration{name:POST__pets}': [],\n"), js);
+        assertTrue(js.contains("    summaryTrendStats: ['avg', 'min', 'med', 'max', 'p(90)', 'p(95)', 'p(99)', 'count'],\n"), js);
+        assertTrue(js.contains("tags: { name: 'POST__pets' }"), js);
+        assertTrue(js.contains("[SUMMARY_JSON]: JSON.stringify(operationSummary(data), null, 2),"), js);
+        assertTrue(js.contains("/^http_req_(duration|failed)\\{name:(.*)\\}$/"), js);
+    }
+
+    private static Map<String, StringWriter> dataFiles(JsonNode root, GenerationOptions options) throws Exception {
+        Map<String, StringWriter> files = new LinkedHashMap<>();
+        new ScriptBuilder().writeDataFiles(path -> files.computeIfAbsent(path, k -> new StringWriter()),
+                GroupFunctionBuilder.forSpec(root, options));
+        return files;
+    }
+}
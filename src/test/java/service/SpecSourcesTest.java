@@ -0,0 +1,47 @@
+package service;
+
+import io.qameta.allure.*;
+import org.example.SpecSources;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Epic("K6 Script Generator")
+@Feature("Spec Sources")
+class SpecSourcesTest {
+
+    @Test
+    @Story("Local file access")
+    @Severity(SeverityLevel.CRITICAL)
+    void acceptsLocalSpecsOnlyInsideTheSpecDirectory(@TempDir Path dir) throws Exception {
+        Path specs = Files.createDirectory(dir.resolve("specs"));
+        Path spec = Files.writeString(specs.resolve("petstore.json"), "{}");
+        Path secret = Files.writeString(dir.resolve("secret.json"), "{}");
+        Files.createSymbolicLink(specs.resolve("link.json"), secret);
+        SpecSources sources = new SpecSources(specs);
+
+        assertEquals("https://host/openapi.json", sources.resolve("https://host/openapi.json"));
+        assertEquals(spec.toString(), sources.resolve("petstore.json"));
+        assertEquals(spec.toString(), sources.resolve(spec.toUri().toString()));
+        assertThrows(IllegalArgumentException.class, () -> sources.resolve(secret.toString()));
+        assertThrows(IllegalArgumentException.class, () -> sources.resolve("../secret.json"));
+        assertThrows(IllegalArgumentException.class, () -> sources.resolve(secret.toUri().toString()));
+        assertThrows(IllegalArgumentException.class, () -> sources.resolve("link.json"));
+        assertThrows(IllegalArgumentException.class, () -> sources.resolve("/etc/passwd"));
+    }
+
+    @Test
+    @Story("Local file access")
+    @Severity(SeverityLevel.NORMAL)
+    void rejectsEveryLocalSpecWithoutSpecDirectory() {
+        SpecSources sources = new SpecSources("");
+
+        assertEquals("http://host/v3/api-docs", sources.resolve("http://host/v3/api-docs"));
+        assertThrows(IllegalArgumentException.class, () -> sources.resolve("petstore.json"));
+        assertThrows(IllegalArgumentException.class, () -> sources.resolve("file:///etc/passwd"));
+    }
+}
@@ -0,0 +1,212 @@
+package service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpServer;
+import io.qameta.allure.*;
+import org.example.SpecCache;
+import org.example.SwaggerParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Epic("K6 Script Generator")
+@Feature("Swagger Parsing")
+class SwaggerParserTest {
+
+    private static final String SPEC = """
+            {
+              "openapi": "3.0.1",
+              "info": { "title": "Pets", "version": "1" },
+              "x-gateway": { "routes": [1, 2, 3] },
+              "security": [{ "oauth": ["pets:read"] }],
+              "paths": {
+                "/pets/{id}": {
+                  "description": "pet item",
+                  "get": {
+                    "tags": ["pets"],
+                    "summary": "Find pet",
+                    "x-internal": true,
+                    "security": [{ "x-partner-key": [] }, { "oauth": ["x-admin"] }],
+                    "parameters": [
+                      { "name": "id", "in": "path", "example": 7, "description": "id",
+                        "examples": { "a": { "value": 1 } } }
+                    ],
+                    "responses": { "200": { "description": "ok" } }
+                  }
+                }
+              },
+              "components": {
+                "schemas": {
+                  "Pet": {
+                    "description": "a pet",
+                    "properties": {
+                      "description": { "type": "string" },
+                      "kind": { "type": "string", "enum": [{ "description": "literal" }] }
+                    }
+                  }
+                },
+                "examples": { "big": { "value": "blob" } },
+                "securitySchemes": {
+                  "oauth": { "type": "oauth2", "description": "client credentials",
+                    "flows": { "clientCredentials": { "tokenUrl": "/oauth/token", "scopes": { "pets:read": "read", "x-admin": "admin" } } } },
+                  "x-partner-key": { "type": "apiKey", "in": "header", "name": "X-Partner-Key" }
+                }
+              }
+            }
+            """;
+
+    @Test
+    @Story("Streaming load")
+    @Severity(SeverityLevel.NORMAL)
+    void keepsOnlyPathsAndSchemasFromLocalFile(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("spec.json");
+        Files.writeString(file, SPEC);
+
+        JsonNode root = new SwaggerParser().fetchSwaggerJson(file.toString());
+
+        assertFalse(root.has("info"));
+        assertFalse(root.has("x-gateway"));
+        assertFalse(root.path("components").has("examples"));
+
+        JsonNode item = root.path("paths").path("/pets/{id}");
+        assertFalse(item.has("description"));
+        JsonNode get = item.path("get");
+        assertFalse(get.has("summary"));
+        assertFalse(get.has("x-internal"));
+        JsonNode param = get.path("parameters").get(0);
+        assertEquals(7, param.path("example").asInt());
+        assertFalse(param.has("examples"));
+        assertFalse(param.has("description"));
+        assertTrue(get.path("responses").has("200"));
+
+        JsonNode pet = root.path("components").path("schemas").path("Pet");
+        assertFalse(pet.has("description"));
+        assertTrue(pet.path("properties").has("description"), "property names must not be filtered");
+        assertEquals("literal", pet.path("properties").path("kind").path("enum").get(0).path("description").asText());
+
+        JsonNode oauth = root.path("components").path("securitySchemes").path("oauth");
+        assertEquals("/oauth/token", oauth.path("flows").path("clientCredentials").path("tokenUrl").asText());
+        assertFalse(oauth.has("description"));
+        assertEquals("pets:read", root.path("security").get(0).path("oauth").get(0).asText());
+        assertTrue(oauth.path("flows").path("clientCredentials").path("scopes").has("x-admin"), "scope names must not be filtered");
+        assertTrue(root.path("components").path("securitySchemes").has("x-partner-key"));
+        assertTrue(get.path("security").get(0).has("x-partner-key"), "requirement keys are scheme names, not extensions");
+        assertEquals("x-admin", get.path("security").get(1).path("oauth").get(0).asText());
+    }
+
+    @Test
+    @Story("Streaming load")
+    @Severity(SeverityLevel.NORMAL)
+    void acceptsFileUri(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("spec.json");
+        Files.writeString(file, SPEC);
+
+        JsonNode root = new SwaggerParser().fetchSwaggerJson(file.toUri().toString());
+
+        assertTrue(root.path("paths").has("/pets/{id}"));
+    }
+
+    @Test
+    @Story("Conditional fetch")
+    @Severity(SeverityLevel.CRITICAL)
+    void revalidatesCachedSpecAndSkipsDownloadOnNotModified(@TempDir Path dir) throws Exception {
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+            gzip.write(SPEC.getBytes(StandardCharsets.UTF_8));
+        }
+        List<String> conditionalHeaders = new ArrayList<>();
+        List<Integer> statuses = new ArrayList<>();
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/openapi.json", exchange -> {
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            conditionalHeaders.add(ifNoneMatch);
+            if ("\"v1\"".equals(ifNoneMatch)) {
+                statuses.add(304);
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                boolean gzip = String.valueOf(exchange.getRequestHeaders().getFirst("Accept-Encoding")).contains("gzip");
+                byte[] body = gzip ? gzipped.toByteArray() : SPEC.getBytes(StandardCharsets.UTF_8);
+                if (gzip) exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+                exchange.getResponseHeaders().add("ETag", "\"v1\"");
+                statuses.add(200);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+        try {
+            String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/openapi.json";
+            SwaggerParser parser = new SwaggerParser(Duration.ofSeconds(2), Duration.ofSeconds(5), new SpecCache(dir));
+
+            JsonNode first = parser.fetchSwaggerJson(url);
+            JsonNode second = parser.fetchSwaggerJson(url);
+            JsonNode fromDisk = new SwaggerParser(Duration.ofSeconds(2), Duration.ofSeconds(5), new SpecCache(dir))
+                    .fetchSwaggerJson(url);
+
+            assertEquals(List.of(200, 304, 304), statuses);
+            assertNull(conditionalHeaders.get(0));
+            assertSame(first, second, "304 must reuse the parsed spec without parsing again");
+            assertEquals(first, fromDisk);
+            assertTrue(first.path("paths").has("/pets/{id}"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    @Story("Conditional fetch")
+    @Severity(SeverityLevel.CRITICAL)
+    void failsWhenTheBodyStallsBeyondTheReadTimeout() throws Exception {
+        byte[] body = SPEC.getBytes(StandardCharsets.UTF_8);
+        CountDownLatch release = new CountDownLatch(1);
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/openapi.json", exchange -> {
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body, 0, body.length / 2);
+                out.flush();
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                // The client gave up
+            }
+        });
+        server.start();
+        try {
+            String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/openapi.json";
+            SwaggerParser parser = new SwaggerParser(Duration.ofSeconds(2), Duration.ofMillis(500), null);
+
+            long start = System.nanoTime();
+            IOException error = assertThrows(IOException.class, () -> parser.fetchSwaggerJson(url));
+
+            assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(5)) < 0);
+            Throwable cause = error;
+            while (cause != null && !(cause instanceof HttpTimeoutException)) cause = cause.getCause();
+            assertNotNull(cause, "the stalled body must fail with a timeout");
+        } finally {
+            release.countDown();
+            server.stop(0);
+        }
+    }
+}